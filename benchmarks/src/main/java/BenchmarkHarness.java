@@ -0,0 +1,107 @@
+import java.io.PrintStream;
+
+import treasurehunter.bench.GameHarness;
+
+/**
+ * Gives the JMH benchmarks access to the game classes, which can't be imported from a named package.
+ */
+
+public class BenchmarkHarness implements GameHarness {
+    // static variables
+    private static final PrintStream NO_OUTPUT = new PrintStream(PrintStream.nullOutputStream());
+
+    // instance variables
+    private TreasureHunter game;
+    private Hunter hunter;
+    private Town town;
+    private StatusRenderer renderer = new StatusRenderer(false);
+
+    public void newGame(long seed, String difficulty) {
+        game = new TreasureHunter(null, NO_OUTPUT, seed);
+        game.setUpHunter("bench", difficulty);
+        game.enterTown();
+        hunter = game.getHunter();
+        town = game.getCurrentTown();
+    }
+
+    public Object newSharedWorld(long seed, int stockPerItem) {
+        return new SharedWorld(seed, stockPerItem);
+    }
+
+    public void newGame(long seed, String difficulty, Object sharedWorld) {
+        game = new TreasureHunter(null, NO_OUTPUT, seed);
+        game.setSharedWorld((SharedWorld) sharedWorld);
+        game.setUpHunter("bench", difficulty);
+        game.enterTown();
+        hunter = game.getHunter();
+        hunter.changeGold(Integer.MAX_VALUE / 2);
+        town = game.getCurrentTown();
+    }
+
+    public boolean buyAndSell(String item) {
+        Shop shop = town.getShop();
+        shop.buyItem(hunter, item);
+        boolean bought = hunter.hasItemInKit(item);
+        shop.sellItem(hunter, item);
+        return bought;
+    }
+
+    public boolean hasItemInKit(String item) {
+        return hunter.hasItemInKit(item);
+    }
+
+    public boolean addItem(String item) {
+        return hunter.addItem(item);
+    }
+
+    public void removeItemFromKit(String item) {
+        hunter.removeItemFromKit(item);
+    }
+
+    public String getInventory() {
+        return hunter.getInventory();
+    }
+
+    public String hunterInfoString() {
+        return hunter.infoString();
+    }
+
+    public void renderStatus() {
+        renderer.render(game, NO_OUTPUT);
+    }
+
+    public int getCostOfItem(String item) {
+        return town.getShop().getCostOfItem(item);
+    }
+
+    public int getBuyBackCost(String item) {
+        return town.getShop().getBuyBackCost(item);
+    }
+
+    public String shopInventory() {
+        return town.getShop().inventory();
+    }
+
+    public String lookForTrouble() {
+        town.lookForTrouble();
+        return town.getLatestNews();
+    }
+
+    public void processChoice(String choice) {
+        game.processChoice(choice);
+        town = game.getCurrentTown();
+    }
+
+    public long playGames(long seed, String difficulty, int games) {
+        Simulation simulation = new Simulation(new GreedyPolicy(), seed);
+        SimulationStats stats = new SimulationStats();
+        for (int i = 0; i < games; i++) {
+            simulation.playGame(difficulty, seed + i, stats);
+        }
+        return stats.getWins();
+    }
+
+    public long playBatch(long seed, String difficulty, int games) {
+        return new BatchSimulation(seed).run(difficulty, Math.min(games, BatchSimulation.BATCH_SIZE)).getWins();
+    }
+}
@@ -0,0 +1,92 @@
+package treasurehunter.bench;
+
+/**
+ * The game classes live in the default package, which JMH benchmarks can't import.<p>
+ * This interface is implemented by BenchmarkHarness in the default package and loaded by name,
+ * so the benchmarks call straight into the game through one monomorphic interface call that the JIT inlines.
+ */
+public interface GameHarness {
+    /**
+     * Starts a new headless game and enters the first town.
+     *
+     * @param seed The seed for the game's random generator.
+     * @param difficulty The difficulty code, as typed at the start of a console game.
+     */
+    void newGame(long seed, String difficulty);
+
+    /**
+     * Makes a world for several harnesses' games to share, each on its own thread.
+     *
+     * @param seed The world seed.
+     * @param stockPerItem How many of each item every shop starts with.
+     * @return The world, to pass to newGame.
+     */
+    Object newSharedWorld(long seed, int stockPerItem);
+
+    /**
+     * Starts a new headless game in a shared world, with gold enough to keep trading, and enters the first town.
+     *
+     * @param sharedWorld A world made by newSharedWorld.
+     */
+    void newGame(long seed, String difficulty, Object sharedWorld);
+
+    /**
+     * Buys an item at the current town's shop and sells it straight back.
+     *
+     * @return Whether the item could be bought.
+     */
+    boolean buyAndSell(String item);
+
+    boolean hasItemInKit(String item);
+
+    boolean addItem(String item);
+
+    void removeItemFromKit(String item);
+
+    String getInventory();
+
+    String hunterInfoString();
+
+    /**
+     * Draws the per-turn status block and menu with a StatusRenderer into a stream that discards it.
+     */
+    void renderStatus();
+
+    int getCostOfItem(String item);
+
+    int getBuyBackCost(String item);
+
+    String shopInventory();
+
+    String lookForTrouble();
+
+    void processChoice(String choice);
+
+    /**
+     * Plays whole games one after another with GreedyPolicy through the object model, as Simulation does.
+     *
+     * @param seed The seed for the first game.
+     * @param difficulty The difficulty code.
+     * @param games How many games to play.
+     * @return How many of the games were won.
+     */
+    long playGames(long seed, String difficulty, int games);
+
+    /**
+     * Plays the same games as playGames, as one BatchSimulation batch on the calling thread.
+     *
+     * @return How many of the games were won.
+     */
+    long playBatch(long seed, String difficulty, int games);
+
+    /**
+     * @return A new harness backed by the game classes.
+     */
+    static GameHarness create() {
+        try {
+            return (GameHarness) Class.forName("BenchmarkHarness").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkHarness is missing from the classpath", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package treasurehunter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the Hunter's kit and status strings, using a hunter that starts with the "test" kit.<p>
+ * Run with -prof gc to see bytes/op alongside ns/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class HunterBenchmark {
+    private GameHarness game;
+
+    @Setup
+    public void setUp() {
+        game = GameHarness.create();
+        game.newGame(42, "test");
+    }
+
+    @Benchmark
+    public boolean hasItemInKitHit() {
+        return game.hasItemInKit("boot");
+    }
+
+    @Benchmark
+    public boolean hasItemInKitMiss() {
+        return game.hasItemInKit("shovel");
+    }
+
+    @Benchmark
+    public boolean addAndRemoveItem() {
+        boolean added = game.addItem("shovel");
+        game.removeItemFromKit("shovel");
+        return added;
+    }
+
+    @Benchmark
+    public String getInventory() {
+        return game.getInventory();
+    }
+
+    @Benchmark
+    public String infoString() {
+        return game.hunterInfoString();
+    }
+
+    @Benchmark
+    public void renderStatus() {
+        game.renderStatus();
+    }
+}
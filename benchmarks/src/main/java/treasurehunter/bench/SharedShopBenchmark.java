@@ -0,0 +1,57 @@
+package treasurehunter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a shop that every benchmark thread's hunter trades at at once, with plenty of stock and with
+ * only a few of the item for all of them to fight over. Run with -t to change the number of hunters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+public class SharedShopBenchmark {
+    @State(Scope.Benchmark)
+    public static class World {
+        @Param({"2", "1000000"})
+        public int stock;
+
+        private Object sharedWorld;
+
+        @Setup
+        public void setUp() {
+            sharedWorld = GameHarness.create().newSharedWorld(42, stock);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Player {
+        private GameHarness game;
+
+        @Setup
+        public void setUp(World world) {
+            game = GameHarness.create();
+            game.newGame(Thread.currentThread().threadId(), "n", world.sharedWorld);
+        }
+    }
+
+    @Benchmark
+    public boolean buyAndSell(Player player) {
+        return player.game.buyAndSell("water");
+    }
+}
@@ -0,0 +1,52 @@
+package treasurehunter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for Shop price lookups, for items early and late in the price list and one the shop doesn't sell.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ShopBenchmark {
+    @Param({"water", "shovel", "sword", "anvil"})
+    public String item;
+
+    private GameHarness game;
+
+    @Setup
+    public void setUp() {
+        game = GameHarness.create();
+        game.newGame(42, "n");
+    }
+
+    @Benchmark
+    public int getCostOfItem() {
+        return game.getCostOfItem(item);
+    }
+
+    @Benchmark
+    public int getBuyBackCost() {
+        return game.getBuyBackCost(item);
+    }
+
+    @Benchmark
+    public String inventory() {
+        return game.shopInventory();
+    }
+}
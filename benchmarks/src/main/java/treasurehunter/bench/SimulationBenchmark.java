@@ -0,0 +1,56 @@
+package treasurehunter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for whole greedy games on one thread, through the object model and through one BatchSimulation batch.<p>
+ * Both play the same games from the same seeds, and each op is one game, so games/sec and, with -prof gc,
+ * bytes per game can be compared directly.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+    private static final int GAMES = 1024;
+
+    @Param({"e", "n", "h"})
+    public String difficulty;
+
+    private GameHarness game;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        game = GameHarness.create();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public long objects() {
+        seed += GAMES;
+        return game.playGames(seed, difficulty, GAMES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public long batch() {
+        seed += GAMES;
+        return game.playBatch(seed, difficulty, GAMES);
+    }
+}
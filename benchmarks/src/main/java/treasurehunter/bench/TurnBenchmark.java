@@ -0,0 +1,66 @@
+package treasurehunter.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for one whole menu choice through processChoice.<p>
+ * Each invocation plays the action once in each of a batch of fresh games seeded from a counter, so every run
+ * rolls the same sequence of games, and the batch is long enough that JMH's per-invocation setup and timing
+ * don't swamp an action that takes about 100 ns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TurnBenchmark {
+    @Param({"l", "e", "h", "d", "m"})
+    public String choice;
+
+    private static final int GAMES = 1024;
+
+    private GameHarness[] games;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        games = new GameHarness[GAMES];
+        for (int i = 0; i < GAMES; i++) {
+            games[i] = GameHarness.create();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newGames() {
+        for (GameHarness game : games) {
+            seed++;
+            game.newGame(seed, "test");
+            game.addItem("shovel");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public void processChoice(Blackhole blackhole) {
+        for (GameHarness game : games) {
+            game.processChoice(choice);
+            blackhole.consume(game);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An output stream that drops ANSI color escape codes (such as the ones in the Colors class)
+ * so that piped or logged sessions get plain text.
+ */
+
+public class AnsiStripOutputStream extends FilterOutputStream {
+    // constants
+    private static final int ESC = 0x1b;
+    private static final int TEXT = 0;
+    private static final int AFTER_ESC = 1;
+    private static final int IN_CODE = 2;
+
+    // instance variables
+    private int state;
+
+    public AnsiStripOutputStream(OutputStream out) {
+        super(out);
+        state = TEXT;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (keep(b & 0xff)) {
+            out.write(b);
+        }
+    }
+
+    /**
+     * Writes the bytes that aren't part of an escape code, in runs, so plain text costs one write per run.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int runStart = off;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (!keep(b[i] & 0xff)) {
+                if (i > runStart) {
+                    out.write(b, runStart, i - runStart);
+                }
+                runStart = i + 1;
+            }
+        }
+        if (end > runStart) {
+            out.write(b, runStart, end - runStart);
+        }
+    }
+
+    /**
+     * Removes the escape codes from text that is handed out rather than printed, such as a JSON field.
+     *
+     * @param text The text.
+     * @return The text without escape codes.
+     */
+    public static String strip(String text) {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream(text.length());
+        try (AnsiStripOutputStream stripper = new AnsiStripOutputStream(plain)) {
+            stripper.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // a ByteArrayOutputStream never fails
+        }
+        return plain.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Moves through the escape code state machine.
+     *
+     * @param b The next byte.
+     * @return true if the byte is ordinary text that should be written.
+     */
+    private boolean keep(int b) {
+        if (state == TEXT) {
+            if (b == ESC) {
+                state = AFTER_ESC;
+                return false;
+            }
+            return true;
+        } else if (state == AFTER_ESC) {
+            if (b == '[') {
+                state = IN_CODE;
+            } else {
+                state = TEXT;
+            }
+            return false;
+        } else {
+            // a code ends with a byte between '@' and '~', such as the 'm' in "\033[0;31m"
+            if (b >= 0x40 && b <= 0x7e) {
+                state = TEXT;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test for the GameApiServer.<p>
+ * Starts the server on a loopback port, then has many clients, each on a virtual thread, start games and
+ * play them with a fixed cycle of actions for a number of requests, starting a new game whenever one ends.
+ * Reports the sustained requests per second and the request latency percentiles.<p>
+ * Usage: ApiLoadTest [clients] [requests per client]
+ */
+
+public class ApiLoadTest {
+    // constants
+    private static final String[] CYCLE = {"h", "l", "m", "e", "b", "l", "m"};
+
+    public static void main(String[] args) throws Exception {
+        int clientCount = 1000;
+        int requests = 200;
+        if (args.length > 0) {
+            clientCount = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            requests = Integer.parseInt(args[1]);
+        }
+
+        GameApiServer server = new GameApiServer(0);
+        server.start();
+        String base = "http://127.0.0.1:" + server.getPort() + "/games";
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        CountDownLatch go = new CountDownLatch(1);
+        int requestsPerClient = requests;
+
+        List<Future<long[]>> results = new ArrayList<>();
+        long start;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clientCount; i++) {
+                long seed = i;
+                results.add(clients.submit(() -> play(client, base, seed, requestsPerClient, go)));
+            }
+            start = System.nanoTime();
+            go.countDown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = new long[clientCount * requests];
+        int count = 0;
+        for (Future<long[]> result : results) {
+            long[] clientLatencies = result.get();
+            System.arraycopy(clientLatencies, 0, latencies, count, clientLatencies.length);
+            count += clientLatencies.length;
+        }
+        Arrays.sort(latencies, 0, count);
+        System.out.printf("%d clients, %d games kept%n", clientCount, server.getGameCount());
+        System.out.printf("%d requests in %.2fs (%.0f requests/sec)%n", count, seconds, count / seconds);
+        System.out.printf("request latency: p50 %.2fms, p99 %.2fms, max %.2fms%n",
+                percentile(latencies, count, 0.5), percentile(latencies, count, 0.99), latencies[count - 1] / 1e6);
+        server.close();
+    }
+
+    /**
+     * Plays games through the API until the client has made its share of requests.
+     *
+     * @return The latency of each request in nanoseconds.
+     */
+    private static long[] play(HttpClient client, String base, long seed, int requests, CountDownLatch go)
+            throws IOException, InterruptedException {
+        long[] latencies = new long[requests];
+        go.await();
+        String game = null;
+        int step = 0;
+        for (int i = 0; i < requests; i++) {
+            HttpRequest request;
+            if (game == null) {
+                request = post(base + "?name=bot&difficulty=e&seed=" + (seed * requests + i));
+            } else {
+                String action = CYCLE[step % CYCLE.length];
+                step++;
+                String query = "?action=" + action;
+                if (action.equals("b")) {
+                    query += "&item=" + neededItem(game);
+                }
+                request = post(base + "/" + idOf(game) + "/actions" + query);
+            }
+            long sent = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            latencies[i] = System.nanoTime() - sent;
+            if (response.statusCode() >= 400 || response.body().contains("\"over\":true")) {
+                game = null;
+            } else {
+                game = response.body();
+            }
+        }
+        return latencies;
+    }
+
+    private static HttpRequest post(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).POST(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private static String idOf(String state) {
+        int start = state.indexOf("\"id\":") + 5;
+        return state.substring(start, state.indexOf(',', start));
+    }
+
+    private static String neededItem(String state) {
+        int start = state.indexOf("\"neededItem\":\"") + 14;
+        return state.substring(start, state.indexOf('"', start));
+    }
+
+    private static double percentile(long[] sorted, int count, double fraction) {
+        int idx = (int) Math.min(count - 1, Math.ceil(count * fraction) - 1);
+        return sorted[Math.max(0, idx)] / 1e6;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * The BalanceSettings class holds the tuning constants that a difficulty normally decides:
+ * the markdown when selling, the chance of a tough town, the starting gold and how much items cost.<p>
+ * A game given a BalanceSettings uses these instead of its difficulty's values, so the balance sweep
+ * can try other constants without editing TreasureHunter. The price tables are worked out once here
+ * and shared by every shop in every game that uses the same settings.
+ */
+
+public class BalanceSettings {
+    // instance variables
+    private double markdown;
+    private double toughness;
+    private int startingGold;
+    private double priceScale;
+    private int[] buyPrices;
+    private int[] sellPrices;
+    private String listing;
+    private String samuraiListing;
+
+    /**
+     * @param markdown Percentage of markdown for selling items in decimal format.
+     * @param toughness The chance that a new town is a tough one.
+     * @param startingGold The gold the hunter starts with.
+     * @param priceScale What every price in the item file is multiplied by; items that are free stay free.
+     */
+    public BalanceSettings(double markdown, double toughness, int startingGold, double priceScale) {
+        this.markdown = markdown;
+        this.toughness = toughness;
+        this.startingGold = startingGold;
+        this.priceScale = priceScale;
+        buyPrices = new int[ItemCatalog.size()];
+        sellPrices = new int[ItemCatalog.size()];
+        for (int id = 0; id < buyPrices.length; id++) {
+            int price = ItemCatalog.priceOf(id);
+            if (price > 0) {
+                // an item never becomes free just because its price was scaled down
+                buyPrices[id] = Math.max(1, (int) Math.round(price * priceScale));
+            }
+            sellPrices[id] = (int) (buyPrices[id] * markdown);
+        }
+        listing = ItemCatalog.listing(false, buyPrices);
+        samuraiListing = ItemCatalog.listing(true, buyPrices);
+    }
+
+    public double getMarkdown() {
+        return markdown;
+    }
+
+    public double getToughness() {
+        return toughness;
+    }
+
+    public int getStartingGold() {
+        return startingGold;
+    }
+
+    public double getPriceScale() {
+        return priceScale;
+    }
+
+    /**
+     * @return The cost of every item, indexed by item id; callers must not change the array.
+     */
+    public int[] getBuyPrices() {
+        return buyPrices;
+    }
+
+    /**
+     * @return The sell price of every item, indexed by item id; callers must not change the array.
+     */
+    public int[] getSellPrices() {
+        return sellPrices;
+    }
+
+    /**
+     * @param samuraiMode Whether samurai-only items are shown.
+     * @return The shop's list of items at these prices, one per line.
+     */
+    public String listing(boolean samuraiMode) {
+        if (samuraiMode) {
+            return samuraiListing;
+        }
+        return listing;
+    }
+
+    /**
+     * @return The settings as printable text.
+     */
+    public String infoString() {
+        return String.format("markdown %.2f, toughness %.2f, starting gold %d, prices x%.2f",
+                markdown, toughness, startingGold, priceScale);
+    }
+}
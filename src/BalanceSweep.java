@@ -0,0 +1,235 @@
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The BalanceSweep class plays simulated games for every combination of markdown, toughness,
+ * starting gold and price scale in a grid, so the tuning constants can be chosen from a table
+ * instead of by hand.<p>
+ * Each cell keeps playing batches of games until the 95% confidence interval of its win rate is
+ * narrower than the target, so cells with a clear answer stop early and the games go where they are
+ * needed. Cells and the games inside a batch are both split into tasks on a fork/join pool, whose
+ * idle threads steal work from busy ones, so a sweep keeps every core busy to the end.<p>
+ * Game i of every cell uses the same seed, so cells are compared over the same dice rolls.
+ */
+
+public class BalanceSweep {
+    // constants
+    public static final double Z = 1.96;
+    public static final double DEFAULT_HALF_WIDTH = 0.01;
+    public static final long DEFAULT_MAX_GAMES = 100000;
+    public static final int BATCH = 2000;
+    public static final int GAMES_PER_TASK = 250;
+
+    // instance variables
+    private GamePolicy policy;
+    private String difficulty;
+    private long seed;
+    private double halfWidth;
+    private long maxGames;
+    private double[] markdowns;
+    private double[] toughnesses;
+    private int[] startingGolds;
+    private double[] priceScales;
+    private BalanceSettings[] cells;
+    private SimulationStats[] results;
+
+    /**
+     * @param policy The policy that plays every game.
+     * @param difficulty The difficulty code; the grid replaces its markdown, toughness, gold and prices.
+     * @param seed The seed for game 0 of every cell.
+     */
+    public BalanceSweep(GamePolicy policy, String difficulty, long seed) {
+        this.policy = policy;
+        this.difficulty = difficulty;
+        this.seed = seed;
+        halfWidth = DEFAULT_HALF_WIDTH;
+        maxGames = DEFAULT_MAX_GAMES;
+        markdowns = new double[] {0.25, 0.5, 0.75, 1};
+        toughnesses = new double[] {0.2, 0.35, 0.5, 0.65, 0.8};
+        startingGolds = new int[] {10, 20, 40};
+        priceScales = new double[] {0.5, 1, 1.5};
+    }
+
+    /**
+     * The values tried for each constant; every combination of them is one cell.
+     *
+     * @param values The markdowns to try.
+     */
+    public void setMarkdowns(double[] values) {
+        markdowns = values;
+    }
+
+    public void setToughnesses(double[] values) {
+        toughnesses = values;
+    }
+
+    public void setStartingGolds(int[] values) {
+        startingGolds = values;
+    }
+
+    public void setPriceScales(double[] values) {
+        priceScales = values;
+    }
+
+    /**
+     * @param targetHalfWidth A cell stops once its win rate is known to within this much either way.
+     * @param mostGames A cell stops after this many games even if it hasn't got there.
+     */
+    public void setStopping(double targetHalfWidth, long mostGames) {
+        halfWidth = targetHalfWidth;
+        maxGames = mostGames;
+    }
+
+    public int getCellCount() {
+        return markdowns.length * toughnesses.length * startingGolds.length * priceScales.length;
+    }
+
+    /**
+     * Plays every cell on the common fork/join pool and waits for all of them.
+     */
+    public void run() {
+        cells = new BalanceSettings[getCellCount()];
+        results = new SimulationStats[cells.length];
+        int cell = 0;
+        // toughness changes fastest, so each row of the heatmap is a run of neighbouring cells
+        for (int gold : startingGolds) {
+            for (double scale : priceScales) {
+                for (double markdown : markdowns) {
+                    for (double toughness : toughnesses) {
+                        cells[cell] = new BalanceSettings(markdown, toughness, gold, scale);
+                        cell++;
+                    }
+                }
+            }
+        }
+        if (cells.length > 0) {
+            ForkJoinPool.commonPool().invoke(new CellsTask(0, cells.length));
+        }
+    }
+
+    /**
+     * @return How many games the whole sweep played.
+     */
+    public long getTotalGames() {
+        long total = 0;
+        for (SimulationStats stats : results) {
+            total += stats.getGames();
+        }
+        return total;
+    }
+
+    /**
+     * Prints one line per cell with its constants, games played, win rate and confidence interval.
+     *
+     * @param out Where the CSV is printed.
+     */
+    public void writeCsv(PrintStream out) {
+        out.println("markdown,toughness,starting_gold,price_scale,games,win_rate,ci_low,ci_high,avg_turns_to_win");
+        for (int i = 0; i < cells.length; i++) {
+            BalanceSettings settings = cells[i];
+            SimulationStats stats = results[i];
+            double center = stats.winRateCenter(Z);
+            double width = stats.winRateHalfWidth(Z);
+            out.printf("%.2f,%.2f,%d,%.2f,%d,%.4f,%.4f,%.4f,%.1f%n", settings.getMarkdown(), settings.getToughness(),
+                    settings.getStartingGold(), settings.getPriceScale(), stats.getGames(), stats.getWinRate(),
+                    Math.max(0, center - width), Math.min(1, center + width), stats.getAverageTurnsToWin());
+        }
+    }
+
+    /**
+     * Prints the win rates as a grid: one row per starting gold, price scale and markdown, one column per toughness.
+     *
+     * @param out Where the CSV is printed.
+     */
+    public void writeHeatmap(PrintStream out) {
+        out.print("starting_gold,price_scale,markdown");
+        for (double toughness : toughnesses) {
+            out.printf(",toughness %.2f", toughness);
+        }
+        out.println();
+        for (int row = 0; row < cells.length; row += toughnesses.length) {
+            BalanceSettings settings = cells[row];
+            out.printf("%d,%.2f,%.2f", settings.getStartingGold(), settings.getPriceScale(), settings.getMarkdown());
+            for (int t = 0; t < toughnesses.length; t++) {
+                out.printf(",%.4f", results[row + t].getWinRate());
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * Plays batches of games in one cell until its win rate is known closely enough.
+     */
+    private void runCell(int cell) {
+        Simulation simulation = new Simulation(policy, seed);
+        simulation.setBalance(cells[cell]);
+        SimulationStats stats = new SimulationStats();
+        while (stats.getGames() < maxGames && stats.winRateHalfWidth(Z) > halfWidth) {
+            long first = stats.getGames();
+            long last = Math.min(maxGames, first + BATCH);
+            stats.merge(new GamesTask(simulation, first, last).invoke());
+        }
+        results[cell] = stats;
+    }
+
+    /**
+     * Splits a range of cells in half until each task holds a single cell.
+     */
+    private class CellsTask extends RecursiveAction {
+        // fork/join tasks are Serializable, but these are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private int from;
+        private int to;
+
+        CellsTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from == 1) {
+                runCell(from);
+            } else {
+                int middle = (from + to) / 2;
+                invokeAll(new CellsTask(from, middle), new CellsTask(middle, to));
+            }
+        }
+    }
+
+    /**
+     * Splits a batch of games in half until each task holds only a few hundred.
+     */
+    private class GamesTask extends RecursiveTask<SimulationStats> {
+        // fork/join tasks are Serializable, but these are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private transient Simulation simulation;
+        private long from;
+        private long to;
+
+        GamesTask(Simulation simulation, long from, long to) {
+            this.simulation = simulation;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected SimulationStats compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                SimulationStats stats = new SimulationStats();
+                for (long i = from; i < to; i++) {
+                    simulation.playGame(difficulty, seed + i, stats);
+                }
+                return stats;
+            }
+            long middle = (from + to) / 2;
+            GamesTask upper = new GamesTask(simulation, middle, to);
+            upper.fork();
+            SimulationStats stats = new GamesTask(simulation, from, middle).compute();
+            stats.merge(upper.join());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+/**
+ * The BatchSimulation plays the same games as a Simulation with a GreedyPolicy, but many at a time and without
+ * building a TreasureHunter, Hunter, World, Town or Shop for any of them.<p>
+ * A batch of hunters is kept as parallel primitive arrays: gold is an int[], the kit and the treasures found
+ * are long[] bitmasks and the current town's terrain is a byte[]. A turn is applied to the whole
+ * batch in one tight loop whose rules mirror Town.lookForTrouble, Town.digGold, Town.leaveTown and
+ * Hunter.buyItem, and hunters whose games are over are dropped from the loop as they finish.<p>
+ * Each hunter's random generator is a long[] slot stepped by GameRandom's own static methods, and towns are
+ * rolled from World.townSeed exactly as World.buildTown does, so game i seeded with seed + i plays out move
+ * for move as it would in Simulation. World still rolls towns with the JDK's own SplittableRandom, so the
+ * first BatchSimulation made checks GameRandom against it and refuses to run if they no longer agree. The one
+ * difference is that a town's dug flag is forgotten when the hunter leaves, where the World remembers it; the
+ * greedy policy never buys a shovel, so it never digs and the results are the same.
+ */
+
+public class BatchSimulation {
+    // constants
+    public static final int BATCH_SIZE = 1024;
+
+    // the bits of a hunter's flags
+    private static final byte SEARCHED = 1;
+    private static final byte DUG = 2;
+    private static final byte TOUGH = 4;
+
+    // whether GameRandom still matches this JDK's SplittableRandom, which World rolls towns with, checked once
+    private static final boolean GENERATOR_MATCHES = generatorMatches();
+
+    // instance variables
+    private long seed;
+    private BalanceSettings balance;
+
+    /**
+     * @param seed The seed for the first game; game i is seeded with seed + i, as in Simulation.
+     * @throws IllegalStateException if this JDK's SplittableRandom no longer rolls what GameRandom rolls.
+     */
+    public BatchSimulation(long seed) {
+        if (!GENERATOR_MATCHES) {
+            throw new IllegalStateException("This JDK's SplittableRandom no longer rolls the numbers GameRandom "
+                    + "does, so batched towns wouldn't match Simulation's; run without --batch");
+        }
+        this.seed = seed;
+    }
+
+    /**
+     * Plays every game from now on with these tuning constants instead of the difficulty's.
+     *
+     * @param balanceSettings The constants, or null for the difficulty's own.
+     */
+    public void setBalance(BalanceSettings balanceSettings) {
+        balance = balanceSettings;
+    }
+
+    /**
+     * Plays many games at one difficulty, a batch at a time, using all available cores.
+     *
+     * @param difficulty The difficulty code.
+     * @param games How many games to play.
+     * @return The merged results.
+     */
+    public SimulationStats run(String difficulty, long games) {
+        Rules rules = new Rules(difficulty, balance);
+        long batches = (games + BATCH_SIZE - 1) / BATCH_SIZE;
+        return LongStream.range(0, batches)
+                .parallel()
+                .collect(SimulationStats::new, (stats, b) -> {
+                    long first = b * BATCH_SIZE;
+                    int size = (int) Math.min(BATCH_SIZE, games - first);
+                    new Batch(rules, seed + first, size).play(stats);
+                }, SimulationStats::merge);
+    }
+
+    /**
+     * Runs the simulation for each difficulty and prints a report.
+     *
+     * @param games How many games to play per difficulty.
+     * @param out Where the report is printed.
+     */
+    public void report(long games, PrintStream out) {
+        String[] difficulties = {"e", "n", "h", "s"};
+        for (String difficulty : difficulties) {
+            long start = System.nanoTime();
+            SimulationStats stats = run(difficulty, games);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            out.println("=== difficulty " + difficulty + " (batch) ===");
+            out.println(stats.infoString());
+            out.printf("%.0f games/sec%n%n", games / seconds);
+        }
+    }
+
+    /**
+     * The constants of one difficulty, looked up once from a game set up the usual way
+     * so they always agree with TreasureHunter and Shop.
+     */
+    private static class Rules {
+        private int startingGold;
+        private double toughness;
+        private boolean itemsBreak;
+        private long[] terrainBits;
+        private int[] terrainPrices;
+        private long shovelBit;
+        private long swordBit;
+
+        Rules(String difficulty, BalanceSettings balance) {
+            TreasureHunter game = new TreasureHunter(null, new PrintStream(PrintStream.nullOutputStream()), 0);
+            game.setBalance(balance);
+            game.setUpHunter("hunter", difficulty);
+            Shop shop = new Shop(game.getMarkdown(), game);
+            startingGold = game.getHunter().getGold();
+            toughness = game.getToughness();
+            itemsBreak = !game.getEasyMode();
+            terrainBits = new long[TerrainCatalog.size()];
+            terrainPrices = new int[TerrainCatalog.size()];
+            for (int t = 0; t < terrainBits.length; t++) {
+                Terrain terrain = TerrainCatalog.get(t);
+                terrainBits[t] = ItemCatalog.bit(terrain.getNeededItemId());
+                terrainPrices[t] = shop.getCostOfItem(terrain.getNeededItem());
+            }
+            shovelBit = ItemCatalog.bit(ItemCatalog.SHOVEL);
+            swordBit = ItemCatalog.bit(ItemCatalog.SWORD);
+        }
+    }
+
+    /**
+     * One batch of hunters, each playing its own game, stored a field per array with one slot per hunter.
+     */
+    private static class Batch {
+        private Rules rules;
+        private int size;
+        private int[] gold;
+        private long[] kit;
+        private long[] treasures;
+        private byte[] terrain;
+        private byte[] townTreasure;
+        private byte[] flags;
+        private short[] turns;
+        private int[] town;
+        private int[] jump;
+        private long[] worldSeed;
+        private long[] random;
+        private long[] townRandom;
+        private int[] playing;
+
+        Batch(Rules rules, long firstSeed, int size) {
+            this.rules = rules;
+            this.size = size;
+            gold = new int[size];
+            kit = new long[size];
+            treasures = new long[size];
+            terrain = new byte[size];
+            townTreasure = new byte[size];
+            flags = new byte[size];
+            turns = new short[size];
+            town = new int[size];
+            jump = new int[size];
+            worldSeed = new long[size];
+            random = new long[size];
+            townRandom = new long[1];
+            playing = new int[size];
+            for (int i = 0; i < size; i++) {
+                random[i] = firstSeed + i;
+                gold[i] = rules.startingGold;
+                worldSeed[i] = nextLong(i);
+                townRandom[0] = worldSeed[i];
+                jump[i] = 2 + nextTownInt(Math.max(1, World.DEFAULT_SIZE / 2 - 1));
+                enterTown(i, 0);
+            }
+        }
+
+        /**
+         * Plays every game in the batch to the end, a turn of every unfinished game at a time.
+         *
+         * @param stats Where the results are recorded.
+         */
+        void play(SimulationStats stats) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (finished(i)) {
+                    stats.record(won(i), gold[i] <= 0, turns[i], gold[i]);
+                } else {
+                    playing[live] = i;
+                    live++;
+                }
+            }
+            while (live > 0) {
+                int kept = 0;
+                for (int n = 0; n < live; n++) {
+                    int i = playing[n];
+                    turn(i);
+                    if (finished(i)) {
+                        stats.record(won(i), gold[i] <= 0, turns[i], gold[i]);
+                    } else {
+                        playing[kept] = i;
+                        kept++;
+                    }
+                }
+                live = kept;
+            }
+        }
+
+        private boolean finished(int i) {
+            return won(i) || gold[i] <= 0 || turns[i] >= Simulation.MAX_TURNS;
+        }
+
+        private boolean won(int i) {
+            return Long.bitCount(treasures[i]) >= TreasureCatalog.treasuresToWin();
+        }
+
+        /**
+         * Makes the move GreedyPolicy would: hunt, then dig, then move on, then buy what the terrain needs,
+         * and look for trouble otherwise.
+         */
+        private void turn(int i) {
+            int t = terrain[i];
+            int cost = rules.terrainPrices[t];
+            if ((flags[i] & SEARCHED) == 0) {
+                if (!TreasureCatalog.isWorthless(townTreasure[i])) {
+                    treasures[i] |= TreasureCatalog.bit(townTreasure[i]);
+                }
+                flags[i] |= SEARCHED;
+            } else if ((kit[i] & rules.shovelBit) != 0 && (flags[i] & DUG) == 0) {
+                dig(i);
+            } else if ((kit[i] & rules.terrainBits[t]) != 0) {
+                move(i, t);
+            } else if (cost > 0 && gold[i] > cost) {
+                gold[i] -= cost;
+                kit[i] |= rules.terrainBits[t];
+            } else {
+                lookForTrouble(i);
+            }
+            turns[i]++;
+        }
+
+        private void dig(int i) {
+            if (nextDouble(i) < .5) {
+                gold[i] += nextInt(i, 20) + 1;
+            }
+            flags[i] |= DUG;
+        }
+
+        private void move(int i, int t) {
+            if (rules.itemsBreak && nextDouble(i) < 0.99) {
+                kit[i] &= ~rules.terrainBits[t];
+            }
+            int step;
+            int road = nextInt(i, World.NEIGHBORS);
+            if (road == 0) {
+                step = 1;
+            } else if (road == 1) {
+                step = -1;
+            } else if (road == 2) {
+                step = jump[i];
+            } else {
+                step = -jump[i];
+            }
+            enterTown(i, Math.floorMod(town[i] + step, World.DEFAULT_SIZE));
+        }
+
+        private void lookForTrouble(int i) {
+            double noTroubleChance;
+            if ((flags[i] & TOUGH) != 0) {
+                noTroubleChance = 0.33;
+            } else {
+                noTroubleChance = 0.66;
+            }
+            if (nextDouble(i) > noTroubleChance) {
+                return;
+            }
+            int goldDiff = nextInt(i, 10) + 1;
+            if ((kit[i] & rules.swordBit) != 0 || nextDouble(i) > noTroubleChance) {
+                gold[i] += goldDiff;
+            } else {
+                gold[i] -= goldDiff;
+            }
+        }
+
+        /**
+         * Rolls the town's treasure, terrain and toughness from the world seed, in the order World.buildTown does.
+         */
+        private void enterTown(int i, int townId) {
+            townRandom[0] = World.townSeed(worldSeed[i], townId);
+            townTreasure[i] = (byte) nextTownInt(TreasureCatalog.size());
+            terrain[i] = (byte) TerrainCatalog.idAt(nextTownDouble());
+            flags[i] = 0;
+            if (nextTownDouble() < rules.toughness) {
+                flags[i] = TOUGH;
+            }
+            town[i] = townId;
+        }
+
+        private long nextLong(int i) {
+            return GameRandom.nextLong(random, i);
+        }
+
+        private double nextDouble(int i) {
+            return GameRandom.nextDouble(random, i);
+        }
+
+        private int nextInt(int i, int bound) {
+            return GameRandom.nextInt(random, i, bound);
+        }
+
+        /**
+         * The same as nextInt, from the generator a town or the world map is being rolled with.
+         */
+        private int nextTownInt(int bound) {
+            return GameRandom.nextInt(townRandom, 0, bound);
+        }
+
+        private double nextTownDouble() {
+            return GameRandom.nextDouble(townRandom, 0);
+        }
+    }
+
+    /**
+     * Checks that GameRandom's steps roll the same numbers as this JDK's SplittableRandom, over a few seeds and
+     * every kind of draw the batch makes, including bounds that make nextInt draw again.
+     *
+     * @return true if every draw matched.
+     */
+    private static boolean generatorMatches() {
+        long[] seeds = {0, 1, -1, 42, Long.MIN_VALUE, Long.MAX_VALUE, 0x9e3779b97f4a7c15L};
+        int[] bounds = {2, 4, 10, 20, World.DEFAULT_SIZE / 2 - 1, (1 << 30) + 1, Integer.MAX_VALUE};
+        long[] state = new long[1];
+        for (long seed : seeds) {
+            SplittableRandom expected = new SplittableRandom(seed);
+            state[0] = seed;
+            for (int round = 0; round < 64; round++) {
+                long l = expected.nextLong();
+                double d = expected.nextDouble();
+                if (GameRandom.nextLong(state, 0) != l || GameRandom.nextDouble(state, 0) != d) {
+                    return false;
+                }
+                for (int bound : bounds) {
+                    int n = expected.nextInt(bound);
+                    if (GameRandom.nextInt(state, 0, bound) != n) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
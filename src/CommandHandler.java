@@ -0,0 +1,14 @@
+/**
+ * A CommandHandler carries out one menu command. TreasureHunter keeps a table of them indexed by the
+ * command's letter, so adding a command means registering a handler instead of growing a chain of ifs.
+ */
+
+public interface CommandHandler {
+    /**
+     * Carries out the command.
+     *
+     * @param game The game the command was typed in.
+     * @param command The letter that was typed, so one handler can serve several commands.
+     */
+    void run(TreasureHunter game, char command);
+}
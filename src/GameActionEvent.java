@@ -0,0 +1,25 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for one timed game action, such as a whole turn or a brawl.
+ */
+
+@Name("treasurehunter.GameAction")
+@Label("Game Action")
+@Category("Treasure Hunter")
+@Description("One player action and how long it took")
+@StackTrace(false)
+public class GameActionEvent extends Event {
+    @Label("Action")
+    public String action;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    public long latency;
+}
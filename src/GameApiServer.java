@@ -0,0 +1,552 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The GameApiServer lets web pages and bots play Treasure Hunter over HTTP, sending and receiving JSON
+ * instead of the console's colored text.<p>
+ * It uses the JDK's own HttpServer and handles every request on a virtual thread of its own:
+ * <pre>
+ * POST   /games?name=ann&amp;difficulty=n      start a game
+ * GET    /games/{id}                        the game's state
+ * POST   /games/{id}/actions?action=m       make a menu choice: e, m, l, d, h or x
+ * POST   /games/{id}/actions?action=b&amp;item=rope   buy or sell an item
+ * DELETE /games/{id}                        forget the game
+ * </pre>
+ * Parameters can also be sent as a form in the request body. Every reply is a JSON object: the game's state,
+ * with what the last action printed as "output", or an "error".<p>
+ * A game is only played by one request at a time; games that no request has asked about for IDLE_TIMEOUT_MINUTES
+ * are dropped by a sweeper thread of the server's own, so no request pays for the sweep. In a SharedWorld, a game's kit goes back to its town's shop when the game is over, deleted or
+ * dropped.<p>
+ * With a SessionStore, unfinished games that sit idle for a while are parked in it instead, and the next request
+ * for one brings it back, with the same id, as it was.
+ */
+
+public class GameApiServer {
+    // constants
+    public static final int IDLE_TIMEOUT_MINUTES = GameServer.IDLE_TIMEOUT_MINUTES;
+    private static final int BACKLOG = 16384;
+    private static final String ACTIONS = "emldhxbs";
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // instance variables
+    private HttpServer httpServer;
+    private ExecutorService requests;
+    private ConcurrentHashMap<Long, ApiGame> games;
+    private AtomicLong nextId;
+    private GameMetrics metrics;
+    private Leaderboard leaderboard;
+    private SharedWorld sharedWorld;
+    private MarketPrices marketPrices;
+    private SessionStore sessionStore;
+    private long parkAfterNanos;
+    private long sweepIntervalNanos;
+    private ScheduledExecutorService sweeper;
+    private ReentrantLock unparking;
+
+    /**
+     * Opens the listening socket on the loopback address.
+     *
+     * @param port The port to listen on, or 0 to pick any free port.
+     * @throws IOException if the port can't be opened.
+     */
+    public GameApiServer(int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        requests = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(requests);
+        httpServer.createContext("/games", this::handle);
+        games = new ConcurrentHashMap<>();
+        nextId = new AtomicLong(1);
+        sweepIntervalNanos = SWEEP_INTERVAL_NANOS;
+        unparking = new ReentrantLock();
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * @return How many games are being kept live, not counting parked ones.
+     */
+    public int getGameCount() {
+        return games.size();
+    }
+
+    /**
+     * Parks games that are still being played but have been idle for a while in a store, instead of keeping
+     * them live until they are dropped; call before the server starts.
+     *
+     * @param store The store.
+     * @param parkAfter How long a game is idle before it is parked.
+     * @param unit The unit of parkAfter.
+     */
+    public void setSessionStore(SessionStore store, long parkAfter, TimeUnit unit) {
+        sessionStore = store;
+        parkAfterNanos = unit.toNanos(parkAfter);
+        sweepIntervalNanos = Math.min(SWEEP_INTERVAL_NANOS, parkAfterNanos);
+    }
+
+    /**
+     * Records the timings and gold flows of every game started from now on.
+     *
+     * @param gameMetrics The metrics shared by all games.
+     */
+    public void setMetrics(GameMetrics gameMetrics) {
+        metrics = gameMetrics;
+    }
+
+    /**
+     * Records every game finished from now on.
+     *
+     * @param results The leaderboard shared by all games.
+     */
+    public void setLeaderboard(Leaderboard results) {
+        leaderboard = results;
+    }
+
+    /**
+     * Prices the shops of every game started from now on with one market, which all their trades move.
+     *
+     * @param prices The market shared by all games, or null for fixed prices.
+     */
+    public void setMarketPrices(MarketPrices prices) {
+        marketPrices = prices;
+    }
+
+    /**
+     * Puts every game started from now on in the same world, trading at the same shops.
+     *
+     * @param world The shared world, or null for a world of each game's own.
+     */
+    public void setSharedWorld(SharedWorld world) {
+        sharedWorld = world;
+    }
+
+    /**
+     * Starts answering requests, and sweeping idle games, in the background.
+     */
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-api-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictIdleGames, sweepIntervalNanos, sweepIntervalNanos, TimeUnit.NANOSECONDS);
+        httpServer.start();
+    }
+
+    /**
+     * Stops answering requests, giving ones already running a second to finish.
+     */
+    public void close() {
+        httpServer.stop(1);
+        requests.shutdownNow();
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends a request to the right endpoint and turns anything that goes wrong into a JSON error.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            HashMap<String, String> params = readParams(exchange);
+            // path[0] is the empty string before the first slash and path[1] is "games"
+            if (path.length < 2 || !path[1].equals("games")) {
+                sendError(exchange, 404, "No such endpoint");
+                return;
+            }
+            if (path.length == 2) {
+                if (method.equals("POST")) {
+                    createGame(exchange, params);
+                } else {
+                    sendError(exchange, 405, "Use POST to start a game");
+                }
+                return;
+            }
+            ApiGame game = null;
+            if (path.length <= 4) {
+                game = lockGame(parseId(path[2]));
+            }
+            if (game == null) {
+                sendError(exchange, 404, "No such game");
+                return;
+            }
+            try {
+                // reading a game's state keeps it alive just as playing it does
+                game.lastUsed = System.nanoTime();
+                if (path.length == 3 && method.equals("GET")) {
+                    send(exchange, 200, game.state(""));
+                } else if (path.length == 3 && method.equals("DELETE")) {
+                    games.remove(game.id);
+                    game.gone = true;
+                    game.game.returnKit();
+                    send(exchange, 204, null);
+                } else if (path.length == 4 && path[3].equals("actions") && method.equals("POST")) {
+                    act(exchange, game, params);
+                } else {
+                    sendError(exchange, 404, "No such endpoint");
+                }
+            } finally {
+                game.lock.unlock();
+            }
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, String.valueOf(e));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void createGame(HttpExchange exchange, HashMap<String, String> params) throws IOException {
+        String name = params.getOrDefault("name", "hunter");
+        String difficulty = params.getOrDefault("difficulty", "n");
+        if (!difficulty.equals("e") && !difficulty.equals("n") && !difficulty.equals("h") && !difficulty.equals("s")) {
+            sendError(exchange, 400, "difficulty must be e, n, h or s");
+            return;
+        }
+        long seed;
+        try {
+            seed = Long.parseLong(params.getOrDefault("seed", String.valueOf(System.nanoTime())));
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "seed must be a number");
+            return;
+        }
+        ApiGame game = new ApiGame(nextId.getAndIncrement(), name, difficulty, seed);
+        games.put(game.id, game);
+        send(exchange, 201, game.state(""));
+    }
+
+    /**
+     * Makes a menu choice in a game the caller has locked.
+     */
+    private void act(HttpExchange exchange, ApiGame game, HashMap<String, String> params) throws IOException {
+        String action = params.getOrDefault("action", "");
+        String item = params.get("item");
+        if (action.length() != 1 || ACTIONS.indexOf(action.charAt(0)) < 0) {
+            sendError(exchange, 400, "action must be one of e, m, l, d, h, x, b or s");
+        } else if ((action.equals("b") || action.equals("s")) && item == null) {
+            sendError(exchange, 400, "buying or selling needs an item");
+        } else if ((action.equals("b") || action.equals("s")) && ItemCatalog.idOf(item.toLowerCase()) < 0) {
+            // checked before the game takes its turn, so nothing is traded, counted or posted for it
+            sendError(exchange, 400, "No such item: " + item);
+        } else if (game.isOver()) {
+            sendError(exchange, 409, "The game is over");
+        } else {
+            if (action.equals("b") || action.equals("s")) {
+                game.game.trade(action, item.toLowerCase());
+            } else {
+                game.game.processChoice(action);
+                if (action.equals("x")) {
+                    game.quit = true;
+                }
+            }
+            if (game.isOver()) {
+                game.game.returnKit();
+            }
+            send(exchange, 200, game.state(game.takeOutput()));
+        }
+    }
+
+    /**
+     * Finds a game, bringing it back from the session store if it was parked, and locks it.
+     *
+     * @return The locked game, or null if there is no such game.
+     */
+    private ApiGame lockGame(long id) {
+        ApiGame game = findGame(id);
+        while (game != null) {
+            game.lock.lock();
+            if (!game.gone) {
+                return game;
+            }
+            // parked or deleted while we waited for it
+            game.lock.unlock();
+            game = findGame(id);
+        }
+        return null;
+    }
+
+    private ApiGame findGame(long id) {
+        ApiGame game = games.get(id);
+        if (game != null || sessionStore == null) {
+            return game;
+        }
+        // only one request at a time brings a game back, so two requests for it can't both make a new ApiGame
+        unparking.lock();
+        try {
+            game = games.get(id);
+            if (game == null) {
+                GameSnapshot snapshot = sessionStore.take(id);
+                if (snapshot != null) {
+                    game = new ApiGame(id, snapshot);
+                    games.put(id, game);
+                }
+            }
+            return game;
+        } finally {
+            unparking.unlock();
+        }
+    }
+
+    /**
+     * Runs on the sweeper thread, once a minute or once per parking delay if that is shorter, so no request
+     * waits for it: parks the unfinished games that have been idle long enough, if there is a session store,
+     * and drops the games nobody has touched for IDLE_TIMEOUT_MINUTES.
+     */
+    private void evictIdleGames() {
+        try {
+            long now = System.nanoTime();
+            long idle = TimeUnit.MINUTES.toNanos(IDLE_TIMEOUT_MINUTES);
+            for (ApiGame game : games.values()) {
+                if (sessionStore != null && now - game.lastUsed > parkAfterNanos && !game.isOver()) {
+                    park(game);
+                } else if (now - game.lastUsed > idle) {
+                    drop(game);
+                }
+            }
+        } catch (RuntimeException e) {
+            // an exception would cancel every later sweep
+            System.err.println("Couldn't sweep idle games: " + e);
+        }
+    }
+
+    /**
+     * Forgets a game, unless a request is using it.
+     */
+    private void drop(ApiGame game) {
+        if (!game.lock.tryLock()) {
+            return;
+        }
+        try {
+            if (!game.gone) {
+                game.gone = true;
+                games.remove(game.id, game);
+                game.game.returnKit();
+            }
+        } finally {
+            game.lock.unlock();
+        }
+    }
+
+    /**
+     * Moves a game into the session store, unless a request is using it or it can't be packed.
+     */
+    private void park(ApiGame game) {
+        if (!game.lock.tryLock()) {
+            return;
+        }
+        try {
+            if (!game.gone && sessionStore.put(game.id, game.game.snapshot())) {
+                game.gone = true;
+                games.remove(game.id, game);
+            }
+        } finally {
+            game.lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the parameters from the query string and, for a form, from the request body.
+     */
+    private static HashMap<String, String> readParams(HttpExchange exchange) throws IOException {
+        HashMap<String, String> params = new HashMap<>();
+        addParams(exchange.getRequestURI().getRawQuery(), params);
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+            try (InputStream body = exchange.getRequestBody()) {
+                addParams(new String(body.readAllBytes(), StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void addParams(String encoded, HashMap<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + Json.quote(message) + "}");
+    }
+
+    /**
+     * @param json The reply, or null for a reply with no body.
+     */
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * One game played through the API, with what it prints kept as plain text until the next reply.
+     */
+    private class ApiGame {
+        private long id;
+        private TreasureHunter game;
+        private ByteArrayOutputStream output;
+        private ReentrantLock lock;
+        private boolean quit;
+        private boolean gone;
+        private volatile long lastUsed;
+
+        ApiGame(long id, String name, String difficulty, long seed) {
+            this.id = id;
+            output = new ByteArrayOutputStream();
+            game = new TreasureHunter(null, new PrintStream(new AnsiStripOutputStream(output), false, StandardCharsets.UTF_8), seed);
+            join();
+            game.setUpHunter(name, difficulty);
+            game.enterTown();
+            lock = new ReentrantLock();
+            lastUsed = System.nanoTime();
+        }
+
+        /**
+         * Brings back a game that was parked in the session store.
+         */
+        ApiGame(long id, GameSnapshot snapshot) {
+            this.id = id;
+            output = new ByteArrayOutputStream();
+            game = new TreasureHunter(null, new PrintStream(new AnsiStripOutputStream(output), false, StandardCharsets.UTF_8), snapshot.getRandomSeed());
+            join();
+            game.restore(snapshot);
+            lock = new ReentrantLock();
+            lastUsed = System.nanoTime();
+        }
+
+        /**
+         * Attaches the server's metrics, leaderboard, world and market to the game before it starts.
+         */
+        private void join() {
+            if (metrics != null) {
+                game.setMetrics(metrics);
+            }
+            if (leaderboard != null) {
+                game.addListener(leaderboard);
+            }
+            game.setSharedWorld(sharedWorld);
+            if (marketPrices != null) {
+                game.setMarketPrices(marketPrices);
+            }
+        }
+
+        boolean isOver() {
+            return quit || game.gameWon() || game.getHunter().gameOver();
+        }
+
+        String takeOutput() {
+            game.getOutput().flush();
+            String text = output.toString(StandardCharsets.UTF_8);
+            output.reset();
+            return text;
+        }
+
+        /**
+         * @param printed What the last action printed.
+         * @return The game's state as a JSON object.
+         */
+        String state(String printed) {
+            Hunter hunter = game.getHunter();
+            Town town = game.getCurrentTown();
+            Terrain terrain = town.getTerrain();
+            StringBuilder sb = new StringBuilder(256);
+            sb.append("{\"id\":").append(id);
+            sb.append(",\"hunter\":");
+            Json.appendQuoted(sb, hunter.getHunterName());
+            sb.append(",\"difficulty\":\"").append(game.getDifficulty()).append('"');
+            sb.append(",\"turns\":").append(game.getTurns());
+            sb.append(",\"gold\":").append(hunter.getGold());
+            sb.append(",\"kit\":[");
+            long items = hunter.getKit();
+            while (items != 0) {
+                Json.appendQuoted(sb, ItemCatalog.nameOf(Long.numberOfTrailingZeros(items)));
+                items &= items - 1;
+                if (items != 0) {
+                    sb.append(',');
+                }
+            }
+            sb.append("],\"treasures\":[");
+            long treasures = game.getTreasuresFound();
+            while (treasures != 0) {
+                Json.appendQuoted(sb, TreasureCatalog.nameOf(Long.numberOfTrailingZeros(treasures)));
+                treasures &= treasures - 1;
+                if (treasures != 0) {
+                    sb.append(',');
+                }
+            }
+            sb.append("],\"searched\":").append(game.hasSearched());
+            sb.append(",\"won\":").append(game.gameWon());
+            sb.append(",\"over\":").append(isOver());
+            sb.append(",\"town\":{\"terrain\":");
+            Json.appendQuoted(sb, terrain.getTerrainName());
+            sb.append(",\"neededItem\":");
+            Json.appendQuoted(sb, terrain.getNeededItem());
+            sb.append(",\"tough\":").append(town.isToughTown());
+            sb.append(",\"news\":");
+            Json.appendQuoted(sb, AnsiStripOutputStream.strip(town.getLatestNews()));
+            sb.append(",\"events\":[");
+            NewsFeed news = game.getNews();
+            for (long s = news.getLatestStart(); s < news.getSequence(); s++) {
+                if (s > news.getLatestStart()) {
+                    sb.append(',');
+                }
+                sb.append("{\"kind\":");
+                Json.appendQuoted(sb, NewsFeed.nameOf(news.kindOf(s)));
+                if (news.itemOf(s) >= 0) {
+                    sb.append(",\"item\":");
+                    Json.appendQuoted(sb, ItemCatalog.nameOf(news.itemOf(s)));
+                }
+                sb.append(",\"amount\":").append(news.amountOf(s)).append('}');
+            }
+            sb.append("]},\"info\":");
+            Json.appendQuoted(sb, AnsiStripOutputStream.strip(hunter.infoString()));
+            sb.append(",\"output\":");
+            Json.appendQuoted(sb, printed);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,341 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The GameInput is the one place a game reads the player's input from.<p>
+ * A reader thread pulls bytes from a stream into a reusable buffer and queues them in a type-ahead ring,
+ * so everything the player types or pipes in is kept, in order, however far ahead of the game it arrives.
+ * The ring starts at INITIAL_TYPE_AHEAD bytes and doubles as the player gets further ahead, up to
+ * MAX_TYPE_AHEAD, and chunks are read CHUNK_SIZE bytes at a time, so a session whose player is thinking
+ * holds well under a kilobyte of buffers.
+ * The game takes commands, words and lines straight out of the ring: a command is a single byte, so no
+ * String is made for it, and only words and lines that the game keeps become Strings.<p>
+ * Input is split the way a player types it: every letter is a command, words are separated by spaces and
+ * an empty line counts as an empty answer. If a timeout is set and nothing arrives in time, or the input
+ * ends, reading throws a NoSuchElementException, the same as a Scanner that runs out of lines.<p>
+ * The ring is guarded by a ReentrantLock rather than synchronized, so a server session's virtual thread
+ * that waits for input gives its carrier thread back to the other sessions.
+ */
+
+public class GameInput {
+    // constants
+    public static final int CHUNK_SIZE = 256;
+    public static final int INITIAL_TYPE_AHEAD = 256;
+    public static final int MAX_TYPE_AHEAD = 1 << 16;
+    private static final int NONE = -1;
+
+    // instance variables
+    private InputStream stream;
+    private byte[] ring;
+    private int head;
+    private int count;
+    private boolean ended;
+    private IOException failure;
+    private long timeoutNanos;
+    private boolean lineUsed;
+    private byte[] word;
+    private ReentrantLock lock;
+    private Condition notEmpty;
+    private Condition notFull;
+
+    /**
+     * Reads from a stream on a reader thread of its own.
+     *
+     * @param in The stream, such as System.in or a socket's input.
+     */
+    public GameInput(InputStream in) {
+        stream = in;
+        ring = new byte[INITIAL_TYPE_AHEAD];
+        word = new byte[64];
+        createLock();
+        Thread.ofVirtual().name("game-input").start(this::fill);
+    }
+
+    /**
+     * Reads input that is all known up front, such as a script, without any reader thread.
+     *
+     * @param text Everything the player types.
+     */
+    public GameInput(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ring = new byte[Math.max(1, bytes.length)];
+        System.arraycopy(bytes, 0, ring, 0, bytes.length);
+        count = bytes.length;
+        ended = true;
+        word = new byte[64];
+        createLock();
+    }
+
+    private void createLock() {
+        lock = new ReentrantLock();
+        notEmpty = lock.newCondition();
+        notFull = lock.newCondition();
+    }
+
+    /**
+     * @param timeout How long a read waits for the player before giving up, or 0 to wait forever.
+     * @param unit The unit of the timeout.
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Stops the reader thread by closing the stream; anything already queued can still be read.
+     */
+    public void close() throws IOException {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads the next menu command.
+     *
+     * @return The command letter in lower case, or TreasureHunter.NO_COMMAND for an empty line.
+     */
+    public char readCommand() {
+        if (skipToToken()) {
+            return TreasureHunter.NO_COMMAND;
+        }
+        lineUsed = true;
+        return (char) Character.toLowerCase(take() & 0xff);
+    }
+
+    /**
+     * Reads the next word, such as the item at a shop prompt.
+     *
+     * @return The word in lower case, or an empty String for an empty line.
+     */
+    public String readWord() {
+        if (skipToToken()) {
+            return "";
+        }
+        lineUsed = true;
+        int length = 0;
+        int b = peekWaiting();
+        while (b != NONE && b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+            if (length == word.length) {
+                byte[] bigger = new byte[word.length * 2];
+                System.arraycopy(word, 0, bigger, 0, length);
+                word = bigger;
+            }
+            word[length] = (byte) take();
+            length++;
+            b = peekWaiting();
+        }
+        return new String(word, 0, length, StandardCharsets.UTF_8).toLowerCase();
+    }
+
+    /**
+     * Reads the rest of the current line, or the next line if the current one is used up, such as the hunter's name.
+     *
+     * @return The line in lower case, without surrounding spaces.
+     */
+    public String readLine() {
+        skipSpaces();
+        if (lineUsed && peekWaiting() == '\n') {
+            take();
+            lineUsed = false;
+            skipSpaces();
+        }
+        if (peekWaiting() == NONE) {
+            throw new NoSuchElementException("No line found");
+        }
+        int length = 0;
+        int b = peekWaiting();
+        while (b != NONE && b != '\n') {
+            if (length == word.length) {
+                byte[] bigger = new byte[word.length * 2];
+                System.arraycopy(word, 0, bigger, 0, length);
+                word = bigger;
+            }
+            word[length] = (byte) take();
+            length++;
+            b = peekWaiting();
+        }
+        if (b == '\n') {
+            take();
+        }
+        lineUsed = false;
+        return new String(word, 0, length, StandardCharsets.UTF_8).trim().toLowerCase();
+    }
+
+    /**
+     * Checks whether the next command or word has already been typed, so the game can hold back its
+     * output until it really has to wait for the player.
+     *
+     * @return true if reading a command or word now would not wait.
+     */
+    public boolean hasQueuedToken() {
+        lock.lock();
+        try {
+            boolean used = lineUsed;
+            for (int i = 0; i < count; i++) {
+                byte b = ring[(head + i) % ring.length];
+                if (b == '\n') {
+                    if (!used) {
+                        return true;
+                    }
+                    used = false;
+                } else if (b != ' ' && b != '\t' && b != '\r') {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves to the start of the next token, going on to the next line when this one is used up.
+     *
+     * @return true if an empty line was found instead, which has been consumed.
+     */
+    private boolean skipToToken() {
+        while (true) {
+            skipSpaces();
+            int b = peekWaiting();
+            if (b == NONE) {
+                throw new NoSuchElementException("No line found");
+            } else if (b != '\n') {
+                return false;
+            }
+            take();
+            if (!lineUsed) {
+                return true;
+            }
+            lineUsed = false;
+        }
+    }
+
+    private void skipSpaces() {
+        int b = peekWaiting();
+        while (b == ' ' || b == '\t' || b == '\r') {
+            take();
+            b = peekWaiting();
+        }
+    }
+
+    /**
+     * Waits until a byte is queued or the input ends.
+     *
+     * @return The next byte without taking it, or NONE if the input has ended.
+     * @throws NoSuchElementException if the timeout passes first.
+     */
+    private int peekWaiting() {
+        lock.lock();
+        try {
+            long left = timeoutNanos;
+            while (count == 0 && !ended) {
+                if (timeoutNanos == 0) {
+                    notEmpty.await();
+                } else if (left <= 0) {
+                    throw new NoSuchElementException("No input within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+                } else {
+                    left = notEmpty.awaitNanos(left);
+                }
+            }
+            if (count == 0) {
+                return NONE;
+            }
+            return ring[head] & 0xff;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoSuchElementException("Interrupted while waiting for input");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int take() {
+        lock.lock();
+        try {
+            int b = ring[head] & 0xff;
+            head = (head + 1) % ring.length;
+            count--;
+            notFull.signal();
+            return b;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs on the reader thread: reads chunks from the stream and queues them until the input ends.
+     * When the ring is full it grows, and once it has grown to MAX_TYPE_AHEAD it waits for the game to catch
+     * up rather than dropping anything.
+     * The stream is read directly, not through Channels.newChannel, whose reads hold a monitor and so
+     * would pin the carrier thread while the player is idle.
+     */
+    private void fill() {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        try {
+            int length = stream.read(chunk);
+            while (length >= 0) {
+                queue(chunk, length);
+                length = stream.read(chunk);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            ended = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void queue(byte[] chunk, int length) throws InterruptedException {
+        lock.lock();
+        try {
+            int done = 0;
+            while (done < length) {
+                while (count == ring.length) {
+                    if (ring.length < MAX_TYPE_AHEAD) {
+                        grow();
+                    } else {
+                        notFull.await();
+                    }
+                }
+                int tail = (head + count) % ring.length;
+                int part = Math.min(length - done, Math.min(ring.length - count, ring.length - tail));
+                System.arraycopy(chunk, done, ring, tail, part);
+                done += part;
+                count += part;
+                notEmpty.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Doubles the ring, unwrapping what is queued to the start of the new one; called holding the lock.
+     */
+    private void grow() {
+        byte[] bigger = new byte[Math.min(MAX_TYPE_AHEAD, ring.length * 2)];
+        int first = Math.min(count, ring.length - head);
+        System.arraycopy(ring, head, bigger, 0, first);
+        System.arraycopy(ring, 0, bigger, first, count - first);
+        ring = bigger;
+        head = 0;
+    }
+
+    /**
+     * @return The error that stopped the reader thread, or null if the input ended normally.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+}
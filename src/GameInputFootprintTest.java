@@ -0,0 +1,95 @@
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Footprint test for GameInput.<p>
+ * Opens many inputs on streams that never send anything, the way a server holds sessions whose players are
+ * thinking, waits until every reader thread is blocked in a read, and measures the heap they hold between
+ * them. Fails if an idle session costs more than MAX_BYTES_PER_SESSION. Then types far more than a full
+ * ring ahead into one input and checks that every command comes back out, in order.<p>
+ * Usage: GameInputFootprintTest [sessions]
+ */
+
+public class GameInputFootprintTest {
+    // constants
+    private static final long MAX_BYTES_PER_SESSION = 4096;
+    private static final int TYPED_AHEAD = GameInput.MAX_TYPE_AHEAD * 3;
+
+    public static void main(String[] args) throws Exception {
+        int sessionCount = 10000;
+        if (args.length > 0) {
+            sessionCount = Integer.parseInt(args[0]);
+        }
+
+        CountDownLatch reading = new CountDownLatch(sessionCount);
+        CountDownLatch hangUp = new CountDownLatch(1);
+        long before = usedHeap();
+        List<GameInput> inputs = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            inputs.add(new GameInput(new IdleStream(reading, hangUp)));
+        }
+        reading.await();
+        long perSession = (usedHeap() - before) / sessionCount;
+        System.out.printf("%d idle sessions, %d bytes each%n", inputs.size(), perSession);
+        hangUp.countDown();
+        if (perSession > MAX_BYTES_PER_SESSION) {
+            throw new AssertionError("An idle session holds " + perSession + " bytes, more than " + MAX_BYTES_PER_SESSION);
+        }
+
+        byte[] typed = new byte[TYPED_AHEAD];
+        for (int i = 0; i < typed.length; i += 2) {
+            typed[i] = (byte) ('a' + (i / 2) % 26);
+            typed[i + 1] = '\n';
+        }
+        GameInput input = new GameInput(new ByteArrayInputStream(typed));
+        for (int i = 0; i < typed.length; i += 2) {
+            char command = input.readCommand();
+            if (command != typed[i]) {
+                throw new AssertionError("Command " + i / 2 + " came back as " + command + " instead of " + (char) typed[i]);
+            }
+        }
+        System.out.printf("%d commands typed ahead, all read back in order%n", typed.length / 2);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * A stream that sends nothing until the test hangs up, like a player who never types.
+     */
+    private static class IdleStream extends InputStream {
+        private CountDownLatch reading;
+        private CountDownLatch hangUp;
+
+        IdleStream(CountDownLatch reading, CountDownLatch hangUp) {
+            this.reading = reading;
+            this.hangUp = hangUp;
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            reading.countDown();
+            try {
+                hangUp.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The GameJournal records every action and random outcome of one game as compact binary records.<p>
+ * Records are appended straight into a memory-mapped region of the journal file, so writing one costs a
+ * few bytes copied into memory: there is no per-action system call, fsync or text formatting. The operating
+ * system writes the pages out in the background, so the journal survives the game crashing; close() forces
+ * everything to disk once at the end and cuts the file down to the records written. A JournalReplayer reads
+ * the file back into a game.<p>
+ * The file starts with a 4 byte magic number; each record is a type byte followed by its fields.
+ * A type of 0 marks the end of the journal. The type byte is written last, so a record that was only
+ * partly written when the game crashed still reads as the end of the journal.
+ */
+
+public class GameJournal implements GameListener, Closeable {
+    // constants
+    public static final int MAGIC = 0x54484a31; // "THJ1"
+    public static final byte END = 0;
+    public static final byte START = 1;
+    public static final byte TOWN = 2;
+    public static final byte BUY = 3;
+    public static final byte SELL = 4;
+    public static final byte LEAVE = 5;
+    public static final byte BRAWL = 6;
+    public static final byte DIG = 7;
+    public static final byte SEARCH = 8;
+    private static final int REGION_SIZE = 1 << 20;
+    private static final int MAX_STRING = 255;
+    private static final int MAX_RECORD = 16 + 4 * (MAX_STRING + 1);
+
+    // instance variables
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long regionStart;
+    private int recordStart;
+    private byte recordType;
+
+    /**
+     * Creates (or replaces) a journal file.
+     *
+     * @param path Where the journal is written.
+     * @throws IOException if the file can't be created or mapped.
+     */
+    public GameJournal(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        regionStart = 0;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+        buffer.putInt(MAGIC);
+    }
+
+    public void gameStarted(TreasureHunter game, String difficulty) {
+        begin(START);
+        buffer.putLong(game.getSeed());
+        putString(difficulty);
+        putString(game.getHunter().getHunterName());
+        finish();
+    }
+
+    public void townEntered(Town town, String treasure) {
+        begin(TOWN);
+        putBoolean(town.isToughTown());
+        putString(treasure);
+        putString(town.getTerrain().getTerrainName());
+        putString(town.getTerrain().getNeededItem());
+        finish();
+    }
+
+    public void itemBought(int itemId, int cost, boolean success) {
+        begin(BUY);
+        buffer.put((byte) itemId);
+        putBoolean(success);
+        buffer.putInt(cost);
+        finish();
+    }
+
+    public void itemSold(int itemId, int price, boolean success) {
+        begin(SELL);
+        buffer.put((byte) itemId);
+        putBoolean(success);
+        buffer.putInt(price);
+        finish();
+    }
+
+    public void leftTown(boolean success, boolean itemBroke) {
+        begin(LEAVE);
+        putBoolean(success);
+        putBoolean(itemBroke);
+        finish();
+    }
+
+    public void brawled(int outcome, int gold) {
+        begin(BRAWL);
+        buffer.put((byte) outcome);
+        buffer.putInt(gold);
+        finish();
+    }
+
+    public void dug(int outcome, int gold) {
+        begin(DIG);
+        buffer.put((byte) outcome);
+        buffer.putInt(gold);
+        finish();
+    }
+
+    public void searched(int outcome, String treasure) {
+        begin(SEARCH);
+        buffer.put((byte) outcome);
+        putString(treasure);
+        finish();
+    }
+
+    /**
+     * Forces the journal to disk, truncates the file to the records written and closes it.
+     */
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.truncate(regionStart + buffer.position());
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Starts a record, moving on to a fresh mapped region first if this one might not hold it.
+     * The type byte is left as 0 until finish() is called.
+     *
+     * @param type The record type.
+     */
+    private void begin(byte type) {
+        if (buffer.remaining() < MAX_RECORD) {
+            try {
+                regionStart += buffer.position();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't grow the game journal", e);
+            }
+        }
+        recordStart = buffer.position();
+        recordType = type;
+        buffer.put(END);
+    }
+
+    /**
+     * Completes the current record by writing its type byte.
+     */
+    private void finish() {
+        buffer.put(recordStart, recordType);
+    }
+
+    private void putBoolean(boolean value) {
+        if (value) {
+            buffer.put((byte) 1);
+        } else {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * Writes a short string as a length byte followed by its UTF-8 bytes; longer strings are cut off.
+     */
+    private void putString(String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(bytes.length, MAX_STRING);
+        buffer.put((byte) len);
+        buffer.put(bytes, 0, len);
+    }
+}
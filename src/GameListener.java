@@ -0,0 +1,101 @@
+/**
+ * A GameListener is told about every player action and every random outcome in a game.<p>
+ * Journals, metrics and other observers implement the methods they care about; the rest do nothing.
+ */
+
+public interface GameListener {
+    // outcomes of looking for trouble
+    int BRAWL_NONE = 0;
+    int BRAWL_WON = 1;
+    int BRAWL_LOST = 2;
+
+    // outcomes of digging for gold
+    int DIG_NO_SHOVEL = 0;
+    int DIG_ALREADY_DUG = 1;
+    int DIG_GOLD = 2;
+    int DIG_DIRT = 3;
+
+    // outcomes of hunting for treasure
+    int SEARCH_ALREADY_SEARCHED = 0;
+    int SEARCH_DUST = 1;
+    int SEARCH_ALREADY_HAVE = 2;
+    int SEARCH_FOUND = 3;
+
+    /**
+     * A listener that ignores everything.
+     */
+    GameListener NONE = new GameListener() {
+    };
+
+    /**
+     * Called once the hunter has been created.
+     *
+     * @param game The game.
+     * @param difficulty The difficulty code the player chose.
+     */
+    default void gameStarted(TreasureHunter game, String difficulty) {
+    }
+
+    /**
+     * Called when the hunter arrives in a new town.
+     *
+     * @param town The new town.
+     * @param treasure The treasure hidden in the town.
+     */
+    default void townEntered(Town town, String treasure) {
+    }
+
+    /**
+     * @param itemId The item's id in the ItemCatalog, or -1 if there is no such item.
+     * @param cost The gold the hunter paid, which is 0 for the sword and for a hunter who has it;
+     *             the price asked if the hunter didn't get the item.
+     * @param success true if the hunter got the item.
+     */
+    default void itemBought(int itemId, int cost, boolean success) {
+    }
+
+    /**
+     * @param itemId The item's id in the ItemCatalog, or -1 if there is no such item.
+     * @param price The price offered.
+     * @param success true if the hunter sold the item.
+     */
+    default void itemSold(int itemId, int price, boolean success) {
+    }
+
+    /**
+     * @param success true if the hunter could cross the terrain.
+     * @param itemBroke true if the item used to cross broke.
+     */
+    default void leftTown(boolean success, boolean itemBroke) {
+    }
+
+    /**
+     * @param outcome One of the BRAWL_ constants.
+     * @param gold The gold won or lost.
+     */
+    default void brawled(int outcome, int gold) {
+    }
+
+    /**
+     * @param outcome One of the DIG_ constants.
+     * @param gold The gold dug up.
+     */
+    default void dug(int outcome, int gold) {
+    }
+
+    /**
+     * @param outcome One of the SEARCH_ constants.
+     * @param treasure The treasure in the town.
+     */
+    default void searched(int outcome, String treasure) {
+    }
+
+    /**
+     * Called once, as soon as the hunter has found the last treasure or run out of gold.
+     *
+     * @param game The game.
+     * @param won true if the hunter found all the treasures.
+     */
+    default void gameEnded(TreasureHunter game, boolean won) {
+    }
+}
@@ -0,0 +1,259 @@
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GameMetrics counts what happens across every game it is attached to: how long each action takes and
+ * where the gold comes from and goes.<p>
+ * One GameMetrics is normally shared by all the games in a simulation or server. Everything is recorded
+ * in LongAdders, so games on different threads never wait on each other. Each timing and gold change is also
+ * sent to Java Flight Recorder as a GameActionEvent or GoldFlowEvent when a recording is running.<p>
+ * The totals can be printed as text or JSON, once or on a fixed schedule.
+ */
+
+public class GameMetrics implements GameListener {
+    // timers for each menu choice, recorded around processChoice
+    public static final int BUY = 0;
+    public static final int SELL = 1;
+    public static final int EXPLORE = 2;
+    public static final int MOVE = 3;
+    public static final int TROUBLE = 4;
+    public static final int DIG = 5;
+    public static final int HUNT = 6;
+    public static final int EXIT = 7;
+    public static final int INVALID = 8;
+
+    // timers for the methods that do the work
+    public static final int SHOP_ENTER = 9;
+    public static final int LEAVE_TOWN = 10;
+    public static final int LOOK_FOR_TROUBLE = 11;
+    public static final int DIG_GOLD = 12;
+
+    private static final String[] TIMER_NAMES = {"turn.buy", "turn.sell", "turn.explore", "turn.move",
+            "turn.trouble", "turn.dig", "turn.hunt", "turn.exit", "turn.invalid",
+            "Shop.enter", "Town.leaveTown", "Town.lookForTrouble", "Town.digGold"};
+
+    // instance variables
+    private LatencyHistogram[] timers;
+    private LongAdder brawlGoldWon;
+    private LongAdder brawlGoldLost;
+    private LongAdder digGold;
+    private LongAdder shopGoldSpent;
+    private LongAdder shopGoldEarned;
+    private LongAdder crossings;
+    private LongAdder itemsBroken;
+    private LongAdder games;
+
+    public GameMetrics() {
+        timers = new LatencyHistogram[TIMER_NAMES.length];
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new LatencyHistogram();
+        }
+        brawlGoldWon = new LongAdder();
+        brawlGoldLost = new LongAdder();
+        digGold = new LongAdder();
+        shopGoldSpent = new LongAdder();
+        shopGoldEarned = new LongAdder();
+        crossings = new LongAdder();
+        itemsBroken = new LongAdder();
+        games = new LongAdder();
+    }
+
+    /**
+     * Finds the timer for a menu choice.
+     *
+     * @param choice The choice as typed.
+     * @return One of the turn timer constants.
+     */
+    public static int timerFor(String choice) {
+        if (choice.length() != 1) {
+            return INVALID;
+        }
+        return timerFor(choice.charAt(0));
+    }
+
+    /**
+     * @param command A menu command letter.
+     * @return The timer for that command, or INVALID.
+     */
+    public static int timerFor(char command) {
+        int idx = "bsemldhx".indexOf(command);
+        if (idx < 0) {
+            return INVALID;
+        }
+        return idx;
+    }
+
+    /**
+     * Records how long something took.
+     *
+     * @param timer One of the timer constants.
+     * @param nanos The time taken in nanoseconds.
+     */
+    public void record(int timer, long nanos) {
+        timers[timer].record(nanos);
+        GameActionEvent event = new GameActionEvent();
+        if (event.shouldCommit()) {
+            event.action = TIMER_NAMES[timer];
+            event.latency = nanos;
+            event.commit();
+        }
+    }
+
+    public LatencyHistogram getTimer(int timer) {
+        return timers[timer];
+    }
+
+    public void gameStarted(TreasureHunter game, String difficulty) {
+        games.increment();
+    }
+
+    public void itemBought(int itemId, int cost, boolean success) {
+        if (success && cost > 0) {
+            shopGoldSpent.add(cost);
+            goldFlow("shop.buy", -cost);
+        }
+    }
+
+    public void itemSold(int itemId, int price, boolean success) {
+        if (success) {
+            shopGoldEarned.add(price);
+            goldFlow("shop.sell", price);
+        }
+    }
+
+    public void leftTown(boolean success, boolean itemBroke) {
+        if (success) {
+            crossings.increment();
+            if (itemBroke) {
+                itemsBroken.increment();
+            }
+        }
+    }
+
+    public void brawled(int outcome, int gold) {
+        if (outcome == BRAWL_WON) {
+            brawlGoldWon.add(gold);
+            goldFlow("brawl", gold);
+        } else if (outcome == BRAWL_LOST) {
+            brawlGoldLost.add(gold);
+            goldFlow("brawl", -gold);
+        }
+    }
+
+    public void dug(int outcome, int gold) {
+        if (outcome == DIG_GOLD) {
+            digGold.add(gold);
+            goldFlow("dig", gold);
+        }
+    }
+
+    /**
+     * @return The fraction of terrain crossings that broke the item used, or 0 before any crossing.
+     */
+    public double getItemBreakRate() {
+        long crossed = crossings.sum();
+        if (crossed == 0) {
+            return 0;
+        }
+        return (double) itemsBroken.sum() / crossed;
+    }
+
+    /**
+     * @return All gold that has entered hunters' purses minus all gold that has left them.
+     */
+    public long getNetGold() {
+        return brawlGoldWon.sum() + digGold.sum() + shopGoldEarned.sum() - brawlGoldLost.sum() - shopGoldSpent.sum();
+    }
+
+    /**
+     * @return A printable summary of the metrics.
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("games started: ").append(games.sum()).append('\n');
+        for (int i = 0; i < timers.length; i++) {
+            LatencyHistogram timer = timers[i];
+            if (timer.getCount() > 0) {
+                sb.append(String.format("%-20s count %10d  mean %10.0fns  p50 <%10dns  p99 <%10dns%n", TIMER_NAMES[i],
+                        timer.getCount(), timer.getMeanNanos(), timer.percentileNanos(0.5), timer.percentileNanos(0.99)));
+            }
+        }
+        sb.append("gold in:  brawls ").append(brawlGoldWon.sum()).append(", digs ").append(digGold.sum())
+                .append(", shop sales ").append(shopGoldEarned.sum()).append('\n');
+        sb.append("gold out: brawls ").append(brawlGoldLost.sum()).append(", shop purchases ").append(shopGoldSpent.sum()).append('\n');
+        sb.append("net gold: ").append(getNetGold()).append('\n');
+        sb.append(String.format("item break rate: %.3f (%d of %d crossings)%n", getItemBreakRate(), itemsBroken.sum(), crossings.sum()));
+        return sb.toString();
+    }
+
+    /**
+     * @return The metrics as a single JSON object.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"games\":").append(games.sum()).append(",\"timers\":{");
+        boolean first = true;
+        for (int i = 0; i < timers.length; i++) {
+            LatencyHistogram timer = timers[i];
+            if (timer.getCount() == 0) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(TIMER_NAMES[i]).append("\":{\"count\":").append(timer.getCount())
+                    .append(",\"meanNanos\":").append(Math.round(timer.getMeanNanos()))
+                    .append(",\"p50Nanos\":").append(timer.percentileNanos(0.5))
+                    .append(",\"p99Nanos\":").append(timer.percentileNanos(0.99)).append('}');
+        }
+        sb.append("},\"gold\":{\"brawlWon\":").append(brawlGoldWon.sum())
+                .append(",\"brawlLost\":").append(brawlGoldLost.sum())
+                .append(",\"dig\":").append(digGold.sum())
+                .append(",\"shopSpent\":").append(shopGoldSpent.sum())
+                .append(",\"shopEarned\":").append(shopGoldEarned.sum())
+                .append(",\"net\":").append(getNetGold()).append('}');
+        sb.append(",\"crossings\":").append(crossings.sum())
+                .append(",\"itemsBroken\":").append(itemsBroken.sum())
+                .append(",\"itemBreakRate\":").append(getItemBreakRate()).append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Prints the metrics on a background thread every period until the returned executor is shut down.
+     *
+     * @param period How often to print.
+     * @param unit The unit of period.
+     * @param out Where to print.
+     * @param json true for JSON, false for text.
+     * @return The executor doing the printing.
+     */
+    public ScheduledExecutorService startReporting(long period, TimeUnit unit, PrintStream out, boolean json) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            if (json) {
+                out.println(toJson());
+            } else {
+                out.print(toText());
+            }
+            out.flush();
+        }, period, period, unit);
+        return reporter;
+    }
+
+    private static void goldFlow(String source, int gold) {
+        GoldFlowEvent event = new GoldFlowEvent();
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.gold = gold;
+            event.commit();
+        }
+    }
+}
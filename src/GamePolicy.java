@@ -0,0 +1,23 @@
+/**
+ * A GamePolicy decides what a hunter does when nobody is sitting at the console.<p>
+ * Headless games ask the policy for every move instead of reading from a Scanner.
+ */
+
+public interface GamePolicy {
+    /**
+     * Picks the next menu choice, using the same letters as the console menu.
+     *
+     * @param game The game being played.
+     * @return One of "b", "s", "e", "m", "l", "d", "h" or "x".
+     */
+    String chooseAction(TreasureHunter game);
+
+    /**
+     * Picks the item to trade once the policy has chosen to buy or sell.
+     *
+     * @param game The game being played.
+     * @param buying true if the hunter is buying, false if selling.
+     * @return The name of the item.
+     */
+    String chooseItem(TreasureHunter game, boolean buying);
+}
@@ -0,0 +1,96 @@
+/**
+ * A GameRandom is the random generator a game rolls its dice with.<p>
+ * It steps and mixes its seed exactly as a SplittableRandom made with the same seed does, so a seeded game rolls
+ * the same numbers as before. Unlike a SplittableRandom, its whole state is one long that can be read: a
+ * GameRandom made from getSeed() rolls exactly what this one would roll next, so a game can be snapshotted
+ * without rolling anything.<p>
+ * The steps are also package-private static methods on a slot of a long[], which BatchSimulation keeps a whole
+ * batch of generators in, so the batch and a single game roll with the very same code.
+ */
+
+public class GameRandom {
+    // constants
+    static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // instance variables
+    private long[] seed;
+
+    /**
+     * @param seed The seed, or the state read from another GameRandom with getSeed().
+     */
+    public GameRandom(long seed) {
+        this.seed = new long[] {seed};
+    }
+
+    /**
+     * @return The generator's state; it doesn't move the generator on.
+     */
+    public long getSeed() {
+        return seed[0];
+    }
+
+    public long nextLong() {
+        return nextLong(seed, 0);
+    }
+
+    /**
+     * @return A number from 0 up to but not including 1.
+     */
+    public double nextDouble() {
+        return nextDouble(seed, 0);
+    }
+
+    /**
+     * @param bound One more than the largest number wanted.
+     * @return A number from 0 to bound - 1, each equally likely.
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        return nextInt(seed, 0, bound);
+    }
+
+    /**
+     * Steps the generator kept in a slot of an array and draws a long, the way SplittableRandom.nextLong() does.
+     */
+    static long nextLong(long[] seeds, int i) {
+        seeds[i] += GOLDEN_GAMMA;
+        return mix64(seeds[i]);
+    }
+
+    /**
+     * Draws a number from 0 up to but not including 1 the way SplittableRandom.nextDouble() does.
+     */
+    static double nextDouble(long[] seeds, int i) {
+        return (nextLong(seeds, i) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Draws a number from 0 to bound - 1 the way SplittableRandom.nextInt(bound) does; bound must be positive.
+     */
+    static int nextInt(long[] seeds, int i, int bound) {
+        seeds[i] += GOLDEN_GAMMA;
+        int r = mix32(seeds[i]);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; ) {
+            seeds[i] += GOLDEN_GAMMA;
+            u = mix32(seeds[i]) >>> 1;
+        }
+        return r;
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+}
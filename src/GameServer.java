@@ -0,0 +1,172 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The GameServer hosts many Treasure Hunter sessions at once over a plain TCP line protocol.<p>
+ * Each connection gets its own virtual thread and its own TreasureHunter, reading the player's lines
+ * from the socket and writing the same text the console game prints back to it.
+ */
+
+public class GameServer {
+    // constants
+    public static final int IDLE_TIMEOUT_MINUTES = 15;
+    private static final int BACKLOG = 16384;
+    private static final long MIN_BACKOFF_MILLIS = 10;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+
+    // instance variables
+    private ServerSocket serverSocket;
+    private ExecutorService sessions;
+    private AtomicInteger activeSessions;
+    private GameMetrics metrics;
+    private Leaderboard leaderboard;
+    private SharedWorld sharedWorld;
+    private MarketPrices marketPrices;
+
+    /**
+     * Opens the listening socket on the loopback address.
+     *
+     * @param port The port to listen on, or 0 to pick any free port.
+     * @throws IOException if the port can't be opened.
+     */
+    public GameServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        sessions = Executors.newVirtualThreadPerTaskExecutor();
+        activeSessions = new AtomicInteger();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Records the timings and gold flows of every session started from now on.
+     *
+     * @param gameMetrics The metrics shared by all sessions.
+     */
+    public void setMetrics(GameMetrics gameMetrics) {
+        metrics = gameMetrics;
+    }
+
+    /**
+     * Records every game finished in a session started from now on.
+     *
+     * @param results The leaderboard shared by all sessions.
+     */
+    public void setLeaderboard(Leaderboard results) {
+        leaderboard = results;
+    }
+
+    /**
+     * Prices the shops of every session started from now on with one market, which all their trades move.
+     *
+     * @param prices The market shared by all sessions, or null for fixed prices.
+     */
+    public void setMarketPrices(MarketPrices prices) {
+        marketPrices = prices;
+    }
+
+    /**
+     * Puts every session started from now on in the same world, trading at the same shops.
+     *
+     * @param world The shared world, or null for a world of each session's own.
+     */
+    public void setSharedWorld(SharedWorld world) {
+        sharedWorld = world;
+    }
+
+    /**
+     * Accepts connections until the server is closed, starting a session for each one.<p>
+     * If accepting fails while the server is still open, such as when the process has run out of file
+     * descriptors, the failure is logged and the server waits before trying again, doubling the wait up to
+     * a second while the failures go on, so a lasting failure doesn't spin the accept thread.
+     */
+    public void serve() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                sessions.submit(() -> runSession(client));
+                backoff = MIN_BACKOFF_MILLIS;
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    // the socket was closed, so stop accepting
+                    break;
+                }
+                System.err.println("Game server couldn't accept a connection, retrying in " + backoff + " ms: " + e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+            }
+        }
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     */
+    public void start() {
+        Thread.ofPlatform().name("game-server-accept").daemon(true).start(this::serve);
+    }
+
+    /**
+     * Stops accepting connections and interrupts any sessions still running.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // nothing left to do
+        }
+        sessions.shutdownNow();
+    }
+
+    /**
+     * Plays one complete game over a connection.
+     *
+     * @param client The connected player.
+     */
+    private void runSession(Socket client) {
+        activeSessions.incrementAndGet();
+        try (Socket socket = client) {
+            socket.setTcpNoDelay(true);
+            GameInput in = new GameInput(socket.getInputStream());
+            in.setTimeout(IDLE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false, StandardCharsets.UTF_8);
+            TreasureHunter game = new TreasureHunter(in, out);
+            if (metrics != null) {
+                game.setMetrics(metrics);
+            }
+            if (leaderboard != null) {
+                game.addListener(leaderboard);
+            }
+            game.setSharedWorld(sharedWorld);
+            if (marketPrices != null) {
+                game.setMarketPrices(marketPrices);
+            }
+            game.play();
+            out.flush();
+        } catch (IOException | NoSuchElementException e) {
+            // the player disconnected, or went quiet for too long, part way through the game
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * A GameSnapshot is an immutable copy of everything that changes while a game is played: the hunter's gold and
+ * kit, the treasures found, the turn count, which towns have been dug, which town the hunter is in and what has
+ * happened there.<p>
+ * The kit, the treasures and the dug towns are bitmasks, and the towns themselves are rolled from the world
+ * seed, so the whole snapshot is a handful of numbers plus Strings, BalanceSettings and a dug-town bitset
+ * shared with the game; the World copies the bitset before the game digs again. Taking one, and restoring one
+ * into a new game, costs the same however long the game has been going; nothing is deep copied, and any
+ * number of games can be restored from one snapshot at once, on any threads.
+ */
+
+public class GameSnapshot {
+    // instance variables
+    private final String hunterName;
+    private final String difficulty;
+    private final BalanceSettings balance;
+    private final int gold;
+    private final long kit;
+    private final boolean hasSword;
+    private final long treasuresFound;
+    private final int treasureCount;
+    private final boolean searched;
+    private final int turns;
+    private final boolean ended;
+    private final long worldSeed;
+    private final int worldSize;
+    private final int townCacheSize;
+    private final int townId;
+    private final long[] dugTowns;
+    private final String latestNews;
+    private final long randomSeed;
+
+    /**
+     * Built by TreasureHunter.snapshot().
+     */
+    GameSnapshot(String hunterName, String difficulty, BalanceSettings balance, int gold, long kit, boolean hasSword,
+                 long treasuresFound, int treasureCount, boolean searched, int turns, boolean ended,
+                 long worldSeed, int worldSize, int townCacheSize, int townId, long[] dugTowns, String latestNews,
+                 long randomSeed) {
+        this.hunterName = hunterName;
+        this.difficulty = difficulty;
+        this.balance = balance;
+        this.gold = gold;
+        this.kit = kit;
+        this.hasSword = hasSword;
+        this.treasuresFound = treasuresFound;
+        this.treasureCount = treasureCount;
+        this.searched = searched;
+        this.turns = turns;
+        this.ended = ended;
+        this.worldSeed = worldSeed;
+        this.worldSize = worldSize;
+        this.townCacheSize = townCacheSize;
+        this.townId = townId;
+        this.dugTowns = dugTowns;
+        this.latestNews = latestNews;
+        this.randomSeed = randomSeed;
+    }
+
+    public String getHunterName() {
+        return hunterName;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public BalanceSettings getBalance() {
+        return balance;
+    }
+
+    public int getGold() {
+        return gold;
+    }
+
+    /**
+     * @return The kit bitmask, with one bit set for each ItemCatalog id the hunter has.
+     */
+    public long getKit() {
+        return kit;
+    }
+
+    public boolean hasSword() {
+        return hasSword;
+    }
+
+    /**
+     * @return The found-treasures bitmask, with one bit set for each TreasureCatalog id.
+     */
+    public long getTreasuresFound() {
+        return treasuresFound;
+    }
+
+    public int getTreasureCount() {
+        return treasureCount;
+    }
+
+    public boolean hasSearched() {
+        return searched;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+
+    public long getWorldSeed() {
+        return worldSeed;
+    }
+
+    public int getWorldSize() {
+        return worldSize;
+    }
+
+    public int getTownCacheSize() {
+        return townCacheSize;
+    }
+
+    public int getTownId() {
+        return townId;
+    }
+
+    /**
+     * @return Whether the hunter has dug for gold in the current town.
+     */
+    public boolean hasDugGold() {
+        return hasDug(townId);
+    }
+
+    /**
+     * @param id A town number in the world.
+     * @return Whether the hunter has dug for gold in that town.
+     */
+    public boolean hasDug(int id) {
+        return (dugTowns[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * @return The dug towns, one bit per town number, shared with the game and other snapshots; don't change it.
+     */
+    long[] getDugTowns() {
+        return dugTowns;
+    }
+
+    /**
+     * @return The latest news in the town, as plain text without color codes.
+     */
+    public String getLatestNews() {
+        return latestNews;
+    }
+
+    /**
+     * @return The game's random generator state; a GameRandom made from it rolls what the game would roll next.
+     */
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+}
@@ -0,0 +1,24 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for gold entering or leaving a hunter's purse.
+ */
+
+@Name("treasurehunter.GoldFlow")
+@Label("Gold Flow")
+@Category("Treasure Hunter")
+@Description("Gold won or lost in a brawl, dug up, or spent and earned at a shop")
+@StackTrace(false)
+public class GoldFlowEvent extends Event {
+    @Label("Source")
+    public String source;
+
+    @Label("Gold")
+    @Description("Positive when the hunter gains gold, negative when the hunter pays")
+    public int gold;
+}
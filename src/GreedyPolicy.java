@@ -0,0 +1,31 @@
+/**
+ * A simple policy that plays the game the way most players do:
+ * hunt for treasure first, dig if possible, move on when the terrain allows it,
+ * buy whatever the terrain needs, and brawl for gold otherwise.
+ */
+
+public class GreedyPolicy implements GamePolicy {
+    public String chooseAction(TreasureHunter game) {
+        Hunter hunter = game.getHunter();
+        Town town = game.getCurrentTown();
+        Terrain terrain = town.getTerrain();
+        if (!game.hasSearched()) {
+            return "h";
+        }
+        if (hunter.hasItemInKit(ItemCatalog.SHOVEL) && !town.hasDugGold()) {
+            return "d";
+        }
+        if (terrain.canCrossTerrain(hunter)) {
+            return "m";
+        }
+        int cost = town.getShop().getCostOfItem(terrain.getNeededItem());
+        if (cost > 0 && hunter.getGold() > cost) {
+            return "b";
+        }
+        return "l";
+    }
+
+    public String chooseItem(TreasureHunter game, boolean buying) {
+        return game.getCurrentTown().getTerrain().getNeededItem();
+    }
+}
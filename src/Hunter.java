@@ -7,29 +7,54 @@
 public class Hunter {
     //instance variables
     private String hunterName;
-    private String[] kit;
+    private long kit;
     private int gold;
     TreasureHunter treasureHunter;
-    public static boolean hasSword;
+    private boolean hasSword;
 
     /**
-     * The base constructor of a Hunter assigns the name to the hunter and an empty kit.
+     * The base constructor of a Hunter assigns the name to the hunter and an empty kit.<p>
+     * The kit is a bitmask with one bit for each item id in the ItemCatalog.
      *
      * @param hunterName The hunter's name.
      * @param startingGold The gold the hunter starts with.
      */
     public Hunter(String hunterName, int startingGold, TreasureHunter th) {
         this.hunterName = hunterName;
-        kit = new String[8];
+        kit = 0;
         gold = startingGold;
         treasureHunter = th;
     }
 
+    /**
+     * Rebuilds a hunter part way through a game, such as one restored from a GameSnapshot.
+     *
+     * @param hunterName The hunter's name.
+     * @param gold The hunter's gold.
+     * @param kit The kit bitmask.
+     * @param hasSword Whether the hunter has bought the sword.
+     */
+    Hunter(String hunterName, int gold, long kit, boolean hasSword, TreasureHunter th) {
+        this.hunterName = hunterName;
+        this.kit = kit;
+        this.gold = gold;
+        this.hasSword = hasSword;
+        treasureHunter = th;
+    }
+
     //Accessors
     public String getHunterName() {
         return hunterName;
     }
 
+    public int getGold() {
+        return gold;
+    }
+
+    public boolean hasSword() {
+        return hasSword;
+    }
+
     public boolean gameOver() {
         if (gold <= 0) {
             return true;
@@ -55,19 +80,20 @@ public class Hunter {
      * @return true if the item is successfully bought.
      */
     public boolean buyItem(String item, int costOfItem) {
-        if (item.equals("sword")) {
-            addItem(item);
+        int id = ItemCatalog.idOf(item);
+        if (id == ItemCatalog.SWORD) {
+            addItem(id);
             hasSword = true;
             return true;
         } else if (hasSword) {
             addItem(item);
             return true;
         }
-        if (costOfItem == 0 || gold < costOfItem || hasItemInKit(item)) {
+        if (costOfItem == 0 || gold < costOfItem || id < 0 || hasItemInKit(id)) {
             return false;
         }
         gold -= costOfItem;
-        addItem(item);
+        addItem(id);
         return true;
     }
 
@@ -89,49 +115,82 @@ public class Hunter {
     }
 
     /**
-     * Removes an item from the kit by setting the index of the item to null.
+     * Removes an item from the kit by clearing its bit.
      *
      * @param item The item to be removed.
      */
     public void removeItemFromKit(String item) {
-        int itmIdx = findItemInKit(item);
+        int id = ItemCatalog.idOf(item);
 
-        // if item is found
-        if (itmIdx >= 0) {
-            kit[itmIdx] = null;
+        // if item is a real item
+        if (id >= 0) {
+            removeItemFromKit(id);
         }
     }
 
     /**
-     * Checks to make sure that the item is not already in the kit.
-     * If not, it assigns the item to an index in the kit with a null value ("empty" position).
+     * Removes an item from the kit by clearing its bit.
+     *
+     * @param id The id of the item to be removed.
+     */
+    public void removeItemFromKit(int id) {
+        kit &= ~ItemCatalog.bit(id);
+    }
+
+    /**
+     * Checks to make sure that the item is not already in the kit, and if not, sets its bit.
      *
      * @param item The item to be added to the kit.
      * @return true if the item is not in the kit and has been added.
      */
     public boolean addItem(String item) {
-        if (!hasItemInKit(item)) {
-            int idx = emptyPositionInKit();
-            kit[idx] = item;
-            return true;
+        int id = ItemCatalog.idOf(item);
+        if (id < 0) {
+            return false;
         }
-        return false;
+        return addItem(id);
     }
 
     /**
-     * Checks if the kit Array has the specified item.
+     * Checks to make sure that the item is not already in the kit, and if not, sets its bit.
+     *
+     * @param id The id of the item to be added to the kit.
+     * @return true if the item is not in the kit and has been added.
+     */
+    public boolean addItem(int id) {
+        if (hasItemInKit(id)) {
+            return false;
+        }
+        kit |= ItemCatalog.bit(id);
+        return true;
+    }
+
+    /**
+     * Checks if the kit has the specified item.
      *
      * @param item The search item
      * @return true if the item is found.
      */
     public boolean hasItemInKit(String item) {
-        for (String tmpItem : kit) {
-            if (item.equals(tmpItem)) {
-                // early return
-                return true;
-            }
-        }
-        return false;
+        int id = ItemCatalog.idOf(item);
+        return id >= 0 && hasItemInKit(id);
+    }
+
+    /**
+     * Checks if the kit has the specified item.
+     *
+     * @param id The id of the search item
+     * @return true if the item is found.
+     */
+    public boolean hasItemInKit(int id) {
+        return (kit & ItemCatalog.bit(id)) != 0;
+    }
+
+    /**
+     * @return The kit bitmask, with one bit set for each item the hunter has.
+     */
+    public long getKit() {
+        return kit;
     }
 
     /**
@@ -143,10 +202,11 @@ public class Hunter {
     public String getInventory() {
         String printableKit = Colors.PURPLE +"" + Colors.RESET;
         String space = " ";
-        for (String item : kit) {
-            if (item != null) {
-                printableKit += Colors.PURPLE + item +  Colors.RESET + space;
-            }
+        long items = kit;
+        while (items != 0) {
+            int id = Long.numberOfTrailingZeros(items);
+            printableKit += Colors.PURPLE + ItemCatalog.nameOf(id) +  Colors.RESET + space;
+            items &= items - 1;
         }
         return printableKit;
     }
@@ -160,56 +220,20 @@ public class Hunter {
             str += " and " + getInventory();
         }
         str += "\nTreasures Found: ";
-        for (String itm: treasureHunter.getTreasureFound()) {
-            if (itm != null) {
-                str += itm + " ";
-            }
+        long treasures = treasureHunter.getTreasuresFound();
+        while (treasures != 0) {
+            str += TreasureCatalog.nameOf(Long.numberOfTrailingZeros(treasures)) + " ";
+            treasures &= treasures - 1;
         }
         return str;
     }
 
     /**
-     * Searches kit Array for the index of the specified value.
-     *
-     * @param item String to look for.
-     * @return The index of the item, or -1 if not found.
-     */
-    private int findItemInKit(String item) {
-        for (int i = 0; i < kit.length; i++) {
-            String tmpItem = kit[i];
-
-            if (item.equals(tmpItem)) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    /**
-     * Check if the kit is empty - meaning all elements are null.
+     * Check if the kit is empty - meaning no bits are set.
      *
      * @return true if kit is completely empty.
      */
     private boolean kitIsEmpty() {
-        for (String string : kit) {
-            if (string != null) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Finds the first index where there is a null value.
-     *
-     * @return index of empty index, or -1 if not found.
-     */
-    private int emptyPositionInKit() {
-        for (int i = 0; i < kit.length; i++) {
-            if (kit[i] == null) {
-                return i;
-            }
-        }
-        return -1;
+        return kit == 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ItemCatalog lists every item in the game, gives each one a small id number and knows its price.<p>
+ * The items are read once from items.txt (or the file named by the treasurehunter.items system property),
+ * so adding an item is a change to that file rather than to the code.<p>
+ * A hunter's kit is stored as a bitmask with one bit per id, so checking, adding and removing
+ * an item is a single bit operation instead of a search through an array of Strings.
+ */
+
+public class ItemCatalog {
+    // constants
+    public static final int MAX_ITEMS = Long.SIZE;
+    public static final String CONFIG_PROPERTY = "treasurehunter.items";
+
+    // static variables
+    private static String[] names;
+    private static String[] displayNames;
+    private static int[] prices;
+    private static boolean[] samuraiOnly;
+    private static String listing;
+    private static String samuraiListing;
+    private static final HashMap<String, Integer> IDS = new HashMap<>();
+    private static final ConcurrentHashMap<Double, int[]> SELL_PRICES = new ConcurrentHashMap<>();
+
+    static {
+        load();
+    }
+
+    public static final int SHOVEL = idOf("shovel");
+    public static final int SWORD = idOf("sword");
+
+    /**
+     * Looks up the id of an item.
+     *
+     * @param name The item's name in lower case.
+     * @return The item's id, or -1 if there is no such item.
+     */
+    public static int idOf(String name) {
+        Integer id = IDS.get(name);
+        if (id == null) {
+            return -1;
+        }
+        return id;
+    }
+
+    /**
+     * @param id An item id.
+     * @return The item's name.
+     */
+    public static String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * @param id An item id.
+     * @return Whether only samurai are shown the item in shops.
+     */
+    public static boolean isSamuraiOnly(int id) {
+        return samuraiOnly[id];
+    }
+
+    /**
+     * @return How many different items there are.
+     */
+    public static int size() {
+        return names.length;
+    }
+
+    /**
+     * @param id An item id.
+     * @return The kit bitmask with only this item's bit set.
+     */
+    public static long bit(int id) {
+        return 1L << id;
+    }
+
+    /**
+     * @param id An item id, or -1.
+     * @return What the item costs in a shop, or 0 if the id is -1.
+     */
+    public static int priceOf(int id) {
+        if (id < 0) {
+            return 0;
+        }
+        return prices[id];
+    }
+
+    /**
+     * Returns the sell price of every item at a given markdown, indexed by item id.<p>
+     * Each markdown level is worked out once and then shared by every shop that uses it.
+     *
+     * @param markdown Percentage of markdown for selling items in decimal format.
+     * @return The sell prices; callers must not change the array.
+     */
+    public static int[] sellPrices(double markdown) {
+        return SELL_PRICES.computeIfAbsent(markdown, md -> {
+            int[] sell = new int[prices.length];
+            for (int i = 0; i < prices.length; i++) {
+                sell[i] = (int) (prices[i] * md);
+            }
+            return sell;
+        });
+    }
+
+    /**
+     * @param samuraiMode Whether samurai-only items are shown.
+     * @return The shop's list of items and prices, one per line.
+     */
+    public static String listing(boolean samuraiMode) {
+        if (samuraiMode) {
+            return samuraiListing;
+        }
+        return listing;
+    }
+
+    /**
+     * Builds a shop's list of items at other prices than the ones in the item file.
+     *
+     * @param samuraiMode Whether samurai-only items are shown.
+     * @param itemPrices The price of every item, indexed by item id.
+     * @return The shop's list of items and prices, one per line.
+     */
+    public static String listing(boolean samuraiMode, int[] itemPrices) {
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (samuraiMode || !samuraiOnly[i]) {
+                str.append(displayNames[i]).append(": ").append(itemPrices[i]).append(" gold\n");
+            }
+        }
+        return str.toString();
+    }
+
+    /**
+     * Reads the item file and builds the id, price and listing tables.
+     */
+    private static void load() {
+        ArrayList<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(openConfig())) {
+            String line = reader.readLine();
+            while (line != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    String[] fields = line.split("\\s*,\\s*");
+                    if (fields.length < 3) {
+                        throw new IllegalStateException("Bad line in item file: " + line);
+                    }
+                    rows.add(fields);
+                }
+                line = reader.readLine();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read the item file", e);
+        }
+        if (rows.size() > MAX_ITEMS) {
+            throw new IllegalStateException("The kit can hold at most " + MAX_ITEMS + " different items");
+        }
+
+        names = new String[rows.size()];
+        displayNames = new String[rows.size()];
+        prices = new int[rows.size()];
+        samuraiOnly = new boolean[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            String[] fields = rows.get(i);
+            names[i] = fields[0].toLowerCase();
+            displayNames[i] = fields[1];
+            prices[i] = Integer.parseInt(fields[2]);
+            IDS.put(names[i], i);
+            samuraiOnly[i] = fields.length > 3 && fields[3].equalsIgnoreCase("samurai");
+        }
+        listing = listing(false, prices);
+        samuraiListing = listing(true, prices);
+    }
+
+    private static Reader openConfig() throws IOException {
+        String path = System.getProperty(CONFIG_PROPERTY);
+        if (path != null) {
+            return new FileReader(path, StandardCharsets.UTF_8);
+        }
+        InputStream in = ItemCatalog.class.getResourceAsStream("/items.txt");
+        if (in == null) {
+            throw new IOException("items.txt is not on the classpath");
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The JournalReplayer rebuilds a game from a GameJournal.<p>
+ * Recorded outcomes are applied directly to the hunter, town and game instead of rolling the dice again,
+ * so a replay matches the journal exactly and runs as fast as the file can be read.
+ * A journal cut short by a crash replays up to its last complete record.
+ */
+
+public class JournalReplayer {
+    // static variables
+    private static final PrintStream NO_OUTPUT = new PrintStream(PrintStream.nullOutputStream());
+
+    // instance variables
+    private Path path;
+    private TreasureHunter game;
+    private int records;
+
+    /**
+     * @param path The journal file to replay.
+     */
+    public JournalReplayer(Path path) {
+        this.path = path;
+    }
+
+    public int getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Reads the whole journal and applies every record.
+     *
+     * @return The game in the state it was in when the journal ended, or null if the journal is empty.
+     * @throws IOException if the journal can't be read or isn't a game journal.
+     */
+    public TreasureHunter replay() throws IOException {
+        game = null;
+        records = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 4 || buffer.getInt() != GameJournal.MAGIC) {
+                throw new IOException(path + " is not a game journal");
+            }
+            while (buffer.hasRemaining()) {
+                byte type = buffer.get();
+                if (type == GameJournal.END) {
+                    break;
+                }
+                apply(type, buffer);
+                records++;
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Applies one record to the game.
+     */
+    private void apply(byte type, MappedByteBuffer buffer) throws IOException {
+        if (type == GameJournal.START) {
+            long seed = buffer.getLong();
+            String difficulty = getString(buffer);
+            String name = getString(buffer);
+            game = new TreasureHunter(null, NO_OUTPUT, seed);
+            game.setUpHunter(name, difficulty);
+            return;
+        }
+        if (game == null) {
+            throw new IOException("Journal record " + records + " comes before the game started");
+        }
+        Hunter hunter = game.getHunter();
+        Town town = game.getCurrentTown();
+        if (type == GameJournal.TOWN) {
+            boolean tough = buffer.get() != 0;
+            String treasure = getString(buffer);
+            String terrainName = getString(buffer);
+            String neededItem = getString(buffer);
+            Terrain terrain = TerrainCatalog.named(terrainName);
+            if (terrain == null || !terrain.getNeededItem().equals(neededItem)) {
+                // a terrain that is no longer in the catalog still replays as it was recorded
+                terrain = new Terrain(terrainName, neededItem);
+            }
+            game.enterTown(treasure, terrain, tough);
+        } else if (type == GameJournal.BUY) {
+            int itemId = buffer.get();
+            boolean success = buffer.get() != 0;
+            int cost = buffer.getInt();
+            if (success && itemId >= 0) {
+                hunter.buyItem(ItemCatalog.nameOf(itemId), cost);
+            }
+        } else if (type == GameJournal.SELL) {
+            int itemId = buffer.get();
+            boolean success = buffer.get() != 0;
+            int price = buffer.getInt();
+            if (success && itemId >= 0) {
+                hunter.sellItem(ItemCatalog.nameOf(itemId), price);
+            }
+        } else if (type == GameJournal.LEAVE) {
+            buffer.get();
+            boolean itemBroke = buffer.get() != 0;
+            if (itemBroke) {
+                hunter.removeItemFromKit(town.getTerrain().getNeededItemId());
+                town.setDugGold(false);
+            }
+        } else if (type == GameJournal.BRAWL) {
+            int outcome = buffer.get();
+            int gold = buffer.getInt();
+            if (outcome == GameListener.BRAWL_WON) {
+                hunter.changeGold(gold);
+            } else if (outcome == GameListener.BRAWL_LOST) {
+                hunter.changeGold(-gold);
+            }
+        } else if (type == GameJournal.DIG) {
+            int outcome = buffer.get();
+            int gold = buffer.getInt();
+            if (outcome == GameListener.DIG_GOLD || outcome == GameListener.DIG_DIRT) {
+                hunter.changeGold(gold);
+                town.setDugGold(true);
+            }
+        } else if (type == GameJournal.SEARCH) {
+            int outcome = buffer.get();
+            String treasure = getString(buffer);
+            if (outcome == GameListener.SEARCH_FOUND) {
+                game.addTreasure(treasure);
+            }
+            if (outcome != GameListener.SEARCH_ALREADY_SEARCHED) {
+                game.setSearched(true);
+            }
+        } else {
+            throw new IOException("Unknown journal record type " + type + " at record " + records);
+        }
+    }
+
+    private static String getString(MappedByteBuffer buffer) {
+        int len = buffer.get() & 0xff;
+        byte[] bytes = new byte[len];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Small helpers for writing JSON by hand, which is all the game's JSON output needs.
+ */
+
+public class Json {
+    /**
+     * @param str The text, or null.
+     * @return The text as a JSON string literal, or null as a JSON null.
+     */
+    public static String quote(String str) {
+        if (str == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(str.length() + 2);
+        appendQuoted(sb, str);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the text as a JSON string literal.
+     *
+     * @param sb Where the literal is written.
+     * @param str The text.
+     */
+    public static void appendQuoted(StringBuilder sb, String str) {
+        sb.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with one bucket per power of two nanoseconds.<p>
+ * Many threads can record into it at once without contending, because every bucket is a LongAdder.
+ */
+
+public class LatencyHistogram {
+    // constants
+    private static final int BUCKETS = 64;
+
+    // instance variables
+    private LongAdder count;
+    private LongAdder totalNanos;
+    private LongAdder[] buckets;
+
+    public LatencyHistogram() {
+        count = new LongAdder();
+        totalNanos = new LongAdder();
+        buckets = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos How long one call took.
+     */
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        buckets[bucketOf(nanos)].increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanNanos() {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        return (double) totalNanos.sum() / n;
+    }
+
+    /**
+     * Estimates a percentile as the upper edge of the bucket it falls in, so it is at most twice the true value.
+     *
+     * @param fraction A value between 0 and 1, such as 0.99.
+     * @return The latency in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long percentileNanos(double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets[i].sum();
+            total += snapshot[i];
+        }
+        long target = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target && seen > 0) {
+                return upperEdge(i);
+            }
+        }
+        return 0;
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    private static long upperEdge(int bucket) {
+        if (bucket >= 63) {
+            return Long.MAX_VALUE;
+        }
+        return 1L << bucket;
+    }
+}
@@ -0,0 +1,607 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Leaderboard keeps the result of every finished game on disk and finds the best K games of a difficulty
+ * in milliseconds, however many results it holds.<p>
+ * It is a small log-structured merge tree. A new result goes into a sorted in-memory memtable and is appended
+ * to a write-ahead log, and that is all the thread of a game that just ended does. When the memtable holds
+ * MEMTABLE_LIMIT results it is frozen and handed, with its log, to a background writer thread, and a fresh
+ * memtable and log take over. The writer writes the frozen memtable out as a sorted run file that is never
+ * changed again and then deletes its log. Queries read frozen memtables until their runs are in place.<p>
+ * Runs are compacted by size tier, each tier holding runs FANOUT times bigger than the one below. Whenever a
+ * tier has FANOUT runs, the writer merges them into one run of the next tier. A result is rewritten once per
+ * tier rather than on every compaction, and a query reads fewer than FANOUT runs per tier.<p>
+ * Within each run the results are sorted best first by difficulty, and the header says where each difficulty
+ * starts, so the top K of a difficulty is the first K results of that section of each run and memtable,
+ * merged. Runs are memory mapped, so only the pages a query touches are read.<p>
+ * The log is written a block at a time, so a crash loses at most the last LOG_BLOCK bytes of results.<p>
+ * A crash part way through a flush or a compaction never counts a result twice. Each run is written under a
+ * temporary name and renamed into place once complete. Its header records the highest sequence number in it
+ * and, for a merged run, the numbers of the runs it replaces. When the leaderboard is opened, runs that another
+ * run replaces are deleted and results in the logs that are already in a run are skipped. Logs that were
+ * frozen but not yet written out go back to the writer.
+ */
+
+public class Leaderboard implements GameListener, Closeable {
+    // constants
+    public static final String[] DIFFICULTIES = {"e", "n", "h", "s"};
+    public static final int MEMTABLE_LIMIT = 1 << 16;
+    public static final int FANOUT = 4;
+    public static final int MAGIC = 0x54484c32; // "THL2"
+    private static final int REPLACED = 16 + 4 * (DIFFICULTIES.length + 1);
+    private static final int HEADER_SIZE = REPLACED + 4 + 4 * FANOUT;
+    private static final int LOG_BLOCK = LeaderboardEntry.RECORD_SIZE * 1024;
+
+    // instance variables
+    private Path directory;
+    private FileChannel log;
+    private Path logFile;
+    private int nextLog;
+    private ByteBuffer logBuffer;
+    private TreeSet<LeaderboardEntry> memtable;
+    private ArrayList<Frozen> frozen;
+    private ArrayList<Run> runs;
+    private ExecutorService writer;
+    private IOException failure;
+    private int nextRun;
+    private long nextSequence;
+
+    /**
+     * Opens the leaderboard kept in a directory, creating it if needed, and reloads the results that were
+     * still only in the logs.
+     *
+     * @param directory The directory holding the run files and the logs.
+     * @throws IOException if the directory or its files can't be read.
+     */
+    public Leaderboard(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        memtable = new TreeSet<>();
+        frozen = new ArrayList<>();
+        runs = new ArrayList<>();
+        HashSet<Integer> replaced = new HashSet<>();
+        for (Path file : list("run-*.dat")) {
+            Run run = new Run(file);
+            for (int number : run.replaced) {
+                replaced.add(number);
+            }
+            runs.add(run);
+            nextRun = Math.max(nextRun, run.number + 1);
+        }
+        Iterator<Run> existing = runs.iterator();
+        while (existing.hasNext()) {
+            Run run = existing.next();
+            if (replaced.contains(run.number)) {
+                // a compaction finished writing the run that replaces this one but crashed before deleting it
+                Files.delete(run.file);
+                existing.remove();
+            } else {
+                nextSequence = Math.max(nextSequence, run.maxSequence + 1);
+            }
+        }
+        long inRuns = nextSequence;
+
+        // the newest log is the memtable's; any older ones were frozen and never written out
+        ArrayList<Path> logFiles = list("log-*.dat");
+        for (int i = 0; i < logFiles.size(); i++) {
+            Path file = logFiles.get(i);
+            nextLog = Math.max(nextLog, number(file) + 1);
+            TreeSet<LeaderboardEntry> entries = new TreeSet<>();
+            int complete = readLog(file, inRuns, entries);
+            if (i == logFiles.size() - 1) {
+                memtable = entries;
+                logFile = file;
+                log = FileChannel.open(file, StandardOpenOption.WRITE);
+                if (memtable.isEmpty()) {
+                    complete = 0;
+                    log.truncate(0);
+                }
+                // a half-written record at the end of the log is written over
+                log.position((long) complete * LeaderboardEntry.RECORD_SIZE);
+            } else if (entries.isEmpty()) {
+                Files.delete(file);
+            } else {
+                frozen.add(new Frozen(entries, file));
+            }
+        }
+        if (log == null) {
+            openLog();
+        }
+        logBuffer = ByteBuffer.allocate(LOG_BLOCK);
+
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Frozen batch : frozen) {
+            writer.execute(() -> writeOut(batch));
+        }
+    }
+
+    /**
+     * Records a game the moment it is won or lost.
+     */
+    public void gameEnded(TreasureHunter game, boolean won) {
+        String treasures = TreasureCatalog.names(game.getTreasuresFound(), ",");
+        record(game.getHunter().getHunterName(), game.getDifficulty(), won, game.getTurns(),
+                game.getHunter().getGold(), treasures);
+    }
+
+    /**
+     * Adds one result. This only touches memory and the log's buffer; writing runs is left to the writer thread.
+     *
+     * @param name The hunter's name.
+     * @param difficulty The difficulty code: "e", "n", "h" or "s".
+     * @param won Whether the hunter found enough treasures to win.
+     * @param turns How many turns the game took.
+     * @param gold The hunter's gold at the end.
+     * @param treasures The treasures found, separated by commas.
+     */
+    public synchronized void record(String name, String difficulty, boolean won, int turns, int gold, String treasures) {
+        LeaderboardEntry entry = new LeaderboardEntry(name, difficultyIndex(difficulty), won, turns, gold,
+                treasures, nextSequence);
+        nextSequence++;
+        entry.write(logBuffer);
+        if (!logBuffer.hasRemaining()) {
+            writeLog();
+        }
+        memtable.add(entry);
+        if (memtable.size() >= MEMTABLE_LIMIT) {
+            flush();
+        }
+    }
+
+    /**
+     * Finds the best results at a difficulty.
+     *
+     * @param difficulty The difficulty code.
+     * @param k How many results to return at most.
+     * @return The results, best first.
+     */
+    public synchronized ArrayList<LeaderboardEntry> top(String difficulty, int k) {
+        int index = difficultyIndex(difficulty);
+        ArrayList<LeaderboardEntry> candidates = new ArrayList<>();
+        addBest(memtable, index, k, candidates);
+        for (Frozen batch : frozen) {
+            addBest(batch.entries, index, k, candidates);
+        }
+        for (Run run : runs) {
+            int end = Math.min(run.starts[index + 1], run.starts[index] + k);
+            for (int i = run.starts[index]; i < end; i++) {
+                candidates.add(run.entry(i));
+            }
+        }
+        Collections.sort(candidates);
+        if (candidates.size() > k) {
+            return new ArrayList<>(candidates.subList(0, k));
+        }
+        return candidates;
+    }
+
+    /**
+     * @return How many results the leaderboard holds.
+     */
+    public synchronized long size() {
+        long size = memtable.size();
+        for (Frozen batch : frozen) {
+            size += batch.entries.size();
+        }
+        for (Run run : runs) {
+            size += run.count;
+        }
+        return size;
+    }
+
+    public synchronized int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Freezes the memtable and hands it to the writer thread to be written out as a new run, without waiting.
+     */
+    public synchronized void flush() {
+        if (memtable.isEmpty()) {
+            return;
+        }
+        writeLog();
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Frozen batch = new Frozen(memtable, logFile);
+        frozen.add(batch);
+        memtable = new TreeSet<>();
+        openLog();
+        writer.execute(() -> writeOut(batch));
+    }
+
+    /**
+     * Writes out what is still buffered for the log and closes it, then waits for the writer thread to finish
+     * the runs it was given; the memtable is reloaded from the log next time.
+     *
+     * @throws IOException if the log can't be written, or the writer thread couldn't write a run.
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (!log.isOpen()) {
+                return;
+            }
+            writeLog();
+            log.force(true);
+            log.close();
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Runs on the writer thread: writes a frozen memtable out as a run, deletes its log and compacts.
+     * After a failure nothing more is written, so the runs never hold results newer than a log still waiting;
+     * the logs are written out again when the leaderboard is next opened.
+     */
+    private void writeOut(Frozen batch) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            Run run = writeRun(batch.entries.iterator(), new int[0]);
+            synchronized (this) {
+                runs.add(run);
+                frozen.remove(batch);
+            }
+            Files.delete(batch.logFile);
+            compact();
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Leaderboard: couldn't write a run, results stay in the log: " + e);
+        }
+    }
+
+    /**
+     * Runs on the writer thread, the only thread that changes the runs: merges FANOUT runs of a tier into one
+     * run of the tier above, for as long as some tier has that many.
+     */
+    private void compact() throws IOException {
+        ArrayList<Run> group = pickTier();
+        while (group != null) {
+            int[] numbers = new int[group.size()];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = group.get(i).number;
+            }
+            Run merged = writeRun(merge(group), numbers);
+            synchronized (this) {
+                runs.removeAll(group);
+                runs.add(merged);
+            }
+            for (Run run : group) {
+                Files.delete(run.file);
+            }
+            group = pickTier();
+        }
+    }
+
+    /**
+     * @return The oldest FANOUT runs of the lowest tier that has that many, or null if no tier does.
+     */
+    private ArrayList<Run> pickTier() {
+        ArrayList<ArrayList<Run>> tiers = new ArrayList<>();
+        for (Run run : runs) {
+            int tier = tierOf(run.count);
+            while (tiers.size() <= tier) {
+                tiers.add(new ArrayList<>());
+            }
+            tiers.get(tier).add(run);
+        }
+        for (ArrayList<Run> tier : tiers) {
+            if (tier.size() >= FANOUT) {
+                return new ArrayList<>(tier.subList(0, FANOUT));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The tier of a run: 0 below FANOUT memtables' worth of results, and one more for each FANOUT times that.
+     */
+    private static int tierOf(long count) {
+        int tier = 0;
+        for (long limit = (long) MEMTABLE_LIMIT * FANOUT; count >= limit; limit *= FANOUT) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Merges runs in order, reading each run once from start to end.
+     */
+    private static Iterator<LeaderboardEntry> merge(ArrayList<Run> group) {
+        PriorityQueue<RunCursor> cursors = new PriorityQueue<>();
+        for (Run run : group) {
+            if (run.count > 0) {
+                cursors.add(new RunCursor(run));
+            }
+        }
+        return new Iterator<>() {
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            public LeaderboardEntry next() {
+                RunCursor cursor = cursors.poll();
+                LeaderboardEntry entry = cursor.current;
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * Writes sorted results to a new run file. The file is written under a temporary name and renamed
+     * when it is complete, so a crash never leaves half a run behind.
+     *
+     * @param entries The results, in order.
+     * @param replaced The numbers of the runs merged into this one, which it replaces; none for a flush.
+     */
+    private Run writeRun(Iterator<LeaderboardEntry> entries, int[] replaced) throws IOException {
+        Path file = directory.resolve(String.format("run-%08d.dat", nextRun));
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        nextRun++;
+        int[] starts = new int[DIFFICULTIES.length + 1];
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer block = ByteBuffer.allocate(LOG_BLOCK);
+            channel.position(HEADER_SIZE);
+            int written = 0;
+            int difficulty = 0;
+            long maxSequence = -1;
+            while (entries.hasNext()) {
+                LeaderboardEntry entry = entries.next();
+                maxSequence = Math.max(maxSequence, entry.getSequence());
+                while (difficulty < entry.getDifficulty()) {
+                    difficulty++;
+                    starts[difficulty] = written;
+                }
+                entry.write(block);
+                written++;
+                if (!block.hasRemaining()) {
+                    block.flip();
+                    channel.write(block);
+                    block.clear();
+                }
+            }
+            while (difficulty < DIFFICULTIES.length) {
+                difficulty++;
+                starts[difficulty] = written;
+            }
+            block.flip();
+            channel.write(block);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(written);
+            header.putLong(maxSequence);
+            for (int start : starts) {
+                header.putInt(start);
+            }
+            header.putInt(replaced.length);
+            for (int number : replaced) {
+                header.putInt(number);
+            }
+            header.clear();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        return new Run(file);
+    }
+
+    /**
+     * Starts a new, empty log for the memtable.
+     */
+    private void openLog() {
+        logFile = directory.resolve(String.format("log-%08d.dat", nextLog));
+        nextLog++;
+        try {
+            log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLog() {
+        try {
+            logBuffer.flip();
+            while (logBuffer.hasRemaining()) {
+                log.write(logBuffer);
+            }
+            logBuffer.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the results in a log that aren't in a run yet.
+     *
+     * @param file The log.
+     * @param inRuns The first sequence number that isn't in a run.
+     * @param entries Where to put the results.
+     * @return How many complete records the log holds; a half-written one at the end is left out.
+     */
+    private int readLog(Path file, long inRuns, TreeSet<LeaderboardEntry> entries) throws IOException {
+        ByteBuffer old;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            old = ByteBuffer.allocate((int) channel.size());
+            channel.read(old, 0);
+        }
+        int complete = old.capacity() / LeaderboardEntry.RECORD_SIZE;
+        for (int i = 0; i < complete; i++) {
+            LeaderboardEntry entry = LeaderboardEntry.read(old, i * LeaderboardEntry.RECORD_SIZE);
+            if (entry.getSequence() < inRuns) {
+                // a flush wrote this result to a run but crashed before deleting the log
+                continue;
+            }
+            entries.add(entry);
+            nextSequence = Math.max(nextSequence, entry.getSequence() + 1);
+        }
+        return complete;
+    }
+
+    /**
+     * @return The files in the directory matching a pattern, in order of their numbers.
+     */
+    private ArrayList<Path> list(String pattern) throws IOException {
+        ArrayList<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, pattern)) {
+            for (Path file : files) {
+                found.add(file);
+            }
+        }
+        Collections.sort(found);
+        return found;
+    }
+
+    /**
+     * Adds the first k results of a difficulty in a memtable to the candidates.
+     */
+    private static void addBest(TreeSet<LeaderboardEntry> entries, int index, int k, ArrayList<LeaderboardEntry> candidates) {
+        LeaderboardEntry first = new LeaderboardEntry("", index, true, Integer.MIN_VALUE, Integer.MAX_VALUE, "", Long.MIN_VALUE);
+        Iterator<LeaderboardEntry> best = entries.tailSet(first).iterator();
+        for (int i = 0; i < k && best.hasNext(); i++) {
+            LeaderboardEntry entry = best.next();
+            if (entry.getDifficulty() != index) {
+                break;
+            }
+            candidates.add(entry);
+        }
+    }
+
+    /**
+     * @return The index of a difficulty code in DIFFICULTIES; anything unknown counts as normal.
+     */
+    public static int difficultyIndex(String difficulty) {
+        for (int i = 0; i < DIFFICULTIES.length; i++) {
+            if (DIFFICULTIES[i].equals(difficulty)) {
+                return i;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return The number in a run or log file's name, such as 12 for run-00000012.dat.
+     */
+    private static int number(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(4, name.length() - 4));
+    }
+
+    /**
+     * A memtable that is full and waiting for the writer thread, with the log that holds its results.
+     */
+    private static class Frozen {
+        private TreeSet<LeaderboardEntry> entries;
+        private Path logFile;
+
+        Frozen(TreeSet<LeaderboardEntry> entries, Path logFile) {
+            this.entries = entries;
+            this.logFile = logFile;
+        }
+    }
+
+    /**
+     * One sorted run file, mapped into memory.
+     */
+    private static class Run {
+        private Path file;
+        private int number;
+        private MappedByteBuffer buffer;
+        private int count;
+        private int[] starts;
+        private long maxSequence;
+        private int[] replaced;
+
+        Run(Path file) throws IOException {
+            this.file = file;
+            number = number(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a leaderboard run");
+            }
+            count = buffer.getInt(4);
+            maxSequence = buffer.getLong(8);
+            starts = new int[DIFFICULTIES.length + 1];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = buffer.getInt(16 + 4 * i);
+            }
+            replaced = new int[buffer.getInt(REPLACED)];
+            for (int i = 0; i < replaced.length; i++) {
+                replaced[i] = buffer.getInt(REPLACED + 4 + 4 * i);
+            }
+        }
+
+        LeaderboardEntry entry(int i) {
+            return LeaderboardEntry.read(buffer, HEADER_SIZE + i * LeaderboardEntry.RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Walks through one run in order during a merge.
+     */
+    private static class RunCursor implements Comparable<RunCursor> {
+        private Run run;
+        private int index;
+        private LeaderboardEntry current;
+
+        RunCursor(Run run) {
+            this.run = run;
+            current = run.entry(0);
+        }
+
+        boolean advance() {
+            index++;
+            if (index >= run.count) {
+                return false;
+            }
+            current = run.entry(index);
+            return true;
+        }
+
+        public int compareTo(RunCursor other) {
+            return current.compareTo(other.current);
+        }
+    }
+}
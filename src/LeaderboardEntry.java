@@ -0,0 +1,176 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One finished game on the Leaderboard.<p>
+ * Entries sort by difficulty and then from best to worst. Won games come first, the fewest turns first; lost
+ * games follow, the hunter who held out the most turns first, since a quick death is the worst result. Ties
+ * go to the most gold, then to the oldest. On disk each entry is a fixed RECORD_SIZE bytes, so a file of them can be read
+ * by index without parsing anything before it.
+ */
+
+public class LeaderboardEntry implements Comparable<LeaderboardEntry> {
+    // constants
+    public static final int RECORD_SIZE = 64;
+    public static final int MAX_TEXT = 22;
+
+    // instance variables
+    private String name;
+    private int difficulty;
+    private boolean won;
+    private int turns;
+    private int gold;
+    private String treasures;
+    private long sequence;
+
+    /**
+     * @param name The hunter's name.
+     * @param difficulty The difficulty's index in Leaderboard.DIFFICULTIES.
+     * @param won Whether the hunter found enough treasures to win.
+     * @param turns How many turns the game took.
+     * @param gold The hunter's gold at the end.
+     * @param treasures The treasures found, separated by commas.
+     * @param sequence The entry's place in the order results were recorded.
+     */
+    public LeaderboardEntry(String name, int difficulty, boolean won, int turns, int gold, String treasures, long sequence) {
+        this.name = clip(name);
+        this.difficulty = difficulty;
+        this.won = won;
+        this.turns = turns;
+        this.gold = gold;
+        this.treasures = clip(treasures);
+        this.sequence = sequence;
+    }
+
+    /**
+     * Reads the entry stored at a position in a buffer, without moving the buffer's position.
+     *
+     * @param buffer The buffer.
+     * @param offset Where the entry starts.
+     * @return The entry.
+     */
+    public static LeaderboardEntry read(ByteBuffer buffer, int offset) {
+        int difficulty = buffer.get(offset);
+        boolean won = buffer.get(offset + 1) != 0;
+        int nameLength = buffer.get(offset + 2);
+        int treasuresLength = buffer.get(offset + 3);
+        int turns = buffer.getInt(offset + 4);
+        int gold = buffer.getInt(offset + 8);
+        long sequence = buffer.getLong(offset + 12);
+        byte[] text = new byte[MAX_TEXT];
+        buffer.get(offset + 20, text, 0, nameLength);
+        String name = new String(text, 0, nameLength, StandardCharsets.UTF_8);
+        buffer.get(offset + 20 + MAX_TEXT, text, 0, treasuresLength);
+        String treasures = new String(text, 0, treasuresLength, StandardCharsets.UTF_8);
+        return new LeaderboardEntry(name, difficulty, won, turns, gold, treasures, sequence);
+    }
+
+    /**
+     * Writes the entry at the buffer's position and moves the position past it.
+     *
+     * @param buffer The buffer, with at least RECORD_SIZE bytes left.
+     */
+    public void write(ByteBuffer buffer) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] treasureBytes = treasures.getBytes(StandardCharsets.UTF_8);
+        int start = buffer.position();
+        buffer.put((byte) difficulty);
+        buffer.put((byte) (won ? 1 : 0));
+        buffer.put((byte) nameBytes.length);
+        buffer.put((byte) treasureBytes.length);
+        buffer.putInt(turns);
+        buffer.putInt(gold);
+        buffer.putLong(sequence);
+        buffer.put(nameBytes);
+        buffer.position(start + 20 + MAX_TEXT);
+        buffer.put(treasureBytes);
+        buffer.position(start + RECORD_SIZE);
+    }
+
+    public int compareTo(LeaderboardEntry other) {
+        if (difficulty != other.difficulty) {
+            return Integer.compare(difficulty, other.difficulty);
+        } else if (won != other.won) {
+            return won ? -1 : 1;
+        } else if (turns != other.turns && won) {
+            return Integer.compare(turns, other.turns);
+        } else if (turns != other.turns) {
+            return Integer.compare(other.turns, turns);
+        } else if (gold != other.gold) {
+            return Integer.compare(other.gold, gold);
+        }
+        return Long.compare(sequence, other.sequence);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public int getGold() {
+        return gold;
+    }
+
+    public String getTreasures() {
+        return treasures;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The entry as one line of text.
+     */
+    public String infoString() {
+        String result;
+        if (won) {
+            result = "won";
+        } else {
+            result = "lost";
+        }
+        return String.format("%-22s %-4s %5d turns %5d gold  %s", name, result, turns, gold, treasures);
+    }
+
+    /**
+     * Shortens text to the most whole characters whose UTF-8 form fits in MAX_TEXT bytes, never splitting a
+     * surrogate pair.
+     */
+    private static String clip(String text) {
+        if (text == null) {
+            return "";
+        }
+        int bytes = 0;
+        int end = 0;
+        while (end < text.length()) {
+            int codePoint = text.codePointAt(end);
+            int size;
+            if (codePoint < 0x80) {
+                size = 1;
+            } else if (codePoint < 0x800) {
+                size = 2;
+            } else if (codePoint < 0x10000) {
+                size = 3;
+            } else {
+                size = 4;
+            }
+            if (bytes + size > MAX_TEXT) {
+                break;
+            }
+            bytes += size;
+            end += Character.charCount(codePoint);
+        }
+        return text.substring(0, end);
+    }
+}
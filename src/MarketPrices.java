@@ -0,0 +1,169 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MarketPrices moves shop prices with supply and demand across every game it is attached to.<p>
+ * Each game counts the items it buys and sells in LongAdders, so games on different threads never wait on
+ * each other. The adders are never reset: every so often their running totals are read and the totals read at
+ * the last publish are taken off, so a trade counted while the totals are being read is never lost, only left
+ * for the next publish. Each item's price factor moves up when hunters bought more of it than they sold and
+ * down when they sold more, drifting back to 1 while nobody trades it. The new factors are published as a
+ * fresh array that is never changed afterwards, so a shop looking up a price reads one volatile field and one
+ * array element: it never locks and never allocates. A shop's price listing is built once per published array
+ * and shared by every shop with the same prices until the next publish.<p>
+ * A factor scales the shop's own price for the item, from the ItemCatalog or the game's BalanceSettings.
+ */
+
+public class MarketPrices implements GameListener {
+    // constants
+    public static final double MIN_FACTOR = 0.5;
+    public static final double MAX_FACTOR = 2.0;
+    private static final double MAX_STEP = 0.1;
+    private static final double RELAX = 0.9;
+    private static final int DAMPING = 10;
+
+    // instance variables
+    private LongAdder[] bought;
+    private LongAdder[] sold;
+    private long[] boughtBefore;
+    private long[] soldBefore;
+    private volatile double[] factors;
+    private volatile Listing[] listings;
+
+    public MarketPrices() {
+        bought = new LongAdder[ItemCatalog.size()];
+        sold = new LongAdder[ItemCatalog.size()];
+        boughtBefore = new long[ItemCatalog.size()];
+        soldBefore = new long[ItemCatalog.size()];
+        double[] start = new double[ItemCatalog.size()];
+        for (int id = 0; id < bought.length; id++) {
+            bought[id] = new LongAdder();
+            sold[id] = new LongAdder();
+            start[id] = 1;
+        }
+        factors = start;
+        listings = new Listing[2];
+    }
+
+    @Override
+    public void itemBought(int itemId, int cost, boolean success) {
+        if (success && itemId >= 0) {
+            bought[itemId].increment();
+        }
+    }
+
+    @Override
+    public void itemSold(int itemId, int price, boolean success) {
+        if (success && itemId >= 0) {
+            sold[itemId].increment();
+        }
+    }
+
+    /**
+     * Scales a price by the item's latest factor.
+     *
+     * @param itemId The item's ItemCatalog id.
+     * @param price The shop's own price for the item.
+     * @return The price now, never less than 1 unless the shop's own price is 0.
+     */
+    public int price(int itemId, int price) {
+        return scale(price, factors[itemId]);
+    }
+
+    /**
+     * Lists every item at its latest price. The listing is built once for each published array of factors,
+     * shop prices and samurai mode, and handed back unchanged until the next publish.
+     *
+     * @param basePrices The shop's own prices indexed by item id, or null for the ItemCatalog's prices.
+     * @param samuraiMode Whether samurai-only items are shown.
+     * @return The shop's list of items and prices, one per line.
+     */
+    public String listing(int[] basePrices, boolean samuraiMode) {
+        double[] current = factors;
+        Listing[] cached = listings;
+        int slot = samuraiMode ? 1 : 0;
+        Listing listing = cached[slot];
+        if (listing != null && listing.factors == current && listing.basePrices == basePrices) {
+            return listing.text;
+        }
+        int[] prices = new int[current.length];
+        for (int id = 0; id < prices.length; id++) {
+            int base = basePrices == null ? ItemCatalog.priceOf(id) : basePrices[id];
+            prices[id] = scale(base, current[id]);
+        }
+        listing = new Listing(current, basePrices, ItemCatalog.listing(samuraiMode, prices));
+        Listing[] next = cached.clone();
+        next[slot] = listing;
+        listings = next;
+        return listing.text;
+    }
+
+    /**
+     * @param itemId The item's ItemCatalog id.
+     * @return The item's latest price factor.
+     */
+    public double factorOf(int itemId) {
+        return factors[itemId];
+    }
+
+    /**
+     * Takes the trades counted since the last publish and publishes new price factors from them.
+     */
+    public synchronized void publish() {
+        double[] last = factors;
+        double[] next = new double[last.length];
+        for (int id = 0; id < next.length; id++) {
+            long boughtTotal = bought[id].sum();
+            long soldTotal = sold[id].sum();
+            long b = boughtTotal - boughtBefore[id];
+            long s = soldTotal - soldBefore[id];
+            boughtBefore[id] = boughtTotal;
+            soldBefore[id] = soldTotal;
+            double imbalance = (double) (b - s) / (b + s + DAMPING);
+            double factor = 1 + (last[id] - 1) * RELAX + MAX_STEP * imbalance;
+            next[id] = Math.min(MAX_FACTOR, Math.max(MIN_FACTOR, factor));
+        }
+        factors = next;
+    }
+
+    private static int scale(int price, double factor) {
+        if (price <= 0) {
+            return price;
+        }
+        return Math.max(1, (int) Math.round(price * factor));
+    }
+
+    /**
+     * Publishes new prices on a background thread every period until the returned executor is shut down.
+     *
+     * @param period How often to publish.
+     * @param unit The unit of period.
+     * @return The executor doing the publishing.
+     */
+    public ScheduledExecutorService startPublishing(long period, TimeUnit unit) {
+        ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "market-prices-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleAtFixedRate(this::publish, period, period, unit);
+        return publisher;
+    }
+
+    /**
+     * A listing built from one published array of factors and the shop prices it scaled.
+     */
+    private static class Listing {
+        private double[] factors;
+        private int[] basePrices;
+        private String text;
+
+        Listing(double[] factors, int[] basePrices, String text) {
+            this.factors = factors;
+            this.basePrices = basePrices;
+            this.text = text;
+        }
+    }
+}
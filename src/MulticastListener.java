@@ -0,0 +1,74 @@
+/**
+ * Passes every game event on to several listeners, in the order they were added.
+ */
+
+public class MulticastListener implements GameListener {
+    // instance variables
+    private GameListener[] listeners;
+
+    public MulticastListener(GameListener first, GameListener second) {
+        if (first instanceof MulticastListener) {
+            GameListener[] existing = ((MulticastListener) first).listeners;
+            listeners = new GameListener[existing.length + 1];
+            System.arraycopy(existing, 0, listeners, 0, existing.length);
+        } else {
+            listeners = new GameListener[2];
+            listeners[0] = first;
+        }
+        listeners[listeners.length - 1] = second;
+    }
+
+    public void gameStarted(TreasureHunter game, String difficulty) {
+        for (GameListener listener : listeners) {
+            listener.gameStarted(game, difficulty);
+        }
+    }
+
+    public void townEntered(Town town, String treasure) {
+        for (GameListener listener : listeners) {
+            listener.townEntered(town, treasure);
+        }
+    }
+
+    public void itemBought(int itemId, int cost, boolean success) {
+        for (GameListener listener : listeners) {
+            listener.itemBought(itemId, cost, success);
+        }
+    }
+
+    public void itemSold(int itemId, int price, boolean success) {
+        for (GameListener listener : listeners) {
+            listener.itemSold(itemId, price, success);
+        }
+    }
+
+    public void leftTown(boolean success, boolean itemBroke) {
+        for (GameListener listener : listeners) {
+            listener.leftTown(success, itemBroke);
+        }
+    }
+
+    public void brawled(int outcome, int gold) {
+        for (GameListener listener : listeners) {
+            listener.brawled(outcome, gold);
+        }
+    }
+
+    public void dug(int outcome, int gold) {
+        for (GameListener listener : listeners) {
+            listener.dug(outcome, gold);
+        }
+    }
+
+    public void searched(int outcome, String treasure) {
+        for (GameListener listener : listeners) {
+            listener.searched(outcome, treasure);
+        }
+    }
+
+    public void gameEnded(TreasureHunter game, boolean won) {
+        for (GameListener listener : listeners) {
+            listener.gameEnded(game, won);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * The NewsFeed is a game's record of what has happened in town: each brawl, crossing, dig and trade is kept
+ * as a typed event with its gold and item, not as text.<p>
+ * Events go into a fixed-size ring of parallel arrays, so posting one writes a few array slots and never
+ * allocates. The events from the hunter's latest action are the latest news; they are only turned into text,
+ * with or without ANSI colors, when something shows them, such as the console's status block or the HTTP API.
+ * Older events stay readable by sequence number until the ring wraps, so a server and a headless game see the
+ * same stream of events.
+ */
+
+public class NewsFeed {
+    // kinds of event
+    public static final int ARRIVED = 0;
+    public static final int CROSSED = 1;
+    public static final int ITEM_LOST = 2;
+    public static final int CANT_LEAVE = 3;
+    public static final int NO_TROUBLE = 4;
+    public static final int BRAWL_WON = 5;
+    public static final int BRAWL_LOST = 6;
+    public static final int BRAWL_WON_WITH_SWORD = 7;
+    public static final int DIG_NO_SHOVEL = 8;
+    public static final int DIG_ALREADY_DUG = 9;
+    public static final int DUG_GOLD = 10;
+    public static final int DUG_DIRT = 11;
+    public static final int BOUGHT = 12;
+    public static final int GIVEN_FOR_SWORD = 13;
+    public static final int BUY_FAILED = 14;
+    public static final int SOLD_OUT = 15;
+    public static final int SOLD = 16;
+    public static final int SELL_FAILED = 17;
+    public static final int LEFT_SHOP = 18;
+    public static final int TEXT = 19;
+
+    private static final String[] KIND_NAMES = {"arrived", "crossed", "itemLost", "cantLeave", "noTrouble",
+            "brawlWon", "brawlLost", "brawlWonWithSword", "digNoShovel", "digAlreadyDug", "dugGold", "dugDirt",
+            "bought", "givenForSword", "buyFailed", "soldOut", "sold", "sellFailed", "leftShop", "text"};
+
+    // constants
+    public static final int CAPACITY = 32;
+    private static final String BRAWL = "You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n";
+
+    // instance variables
+    private TreasureHunter game;
+    private int[] kinds;
+    private int[] items;
+    private int[] amounts;
+    private Terrain[] terrains;
+    private String[] texts;
+    private long written;
+    private long latestStart;
+    private String latestText;
+
+    /**
+     * @param game The game whose news this is; its hunter's name is used in the welcome.
+     */
+    public NewsFeed(TreasureHunter game) {
+        this.game = game;
+        kinds = new int[CAPACITY];
+        items = new int[CAPACITY];
+        amounts = new int[CAPACITY];
+        terrains = new Terrain[CAPACITY];
+        texts = new String[CAPACITY];
+        latestText = "";
+    }
+
+    /**
+     * Starts the latest news afresh; call when the hunter starts an action that makes news.
+     */
+    public void startStory() {
+        latestStart = written;
+        latestText = "";
+    }
+
+    /**
+     * Adds an event to the latest news.
+     *
+     * @param kind One of the kind constants.
+     * @param item The ItemCatalog id of the item involved, or -1.
+     * @param amount The gold involved, or for ARRIVED 1 if the town is a tough one.
+     */
+    public void post(int kind, int item, int amount) {
+        post(kind, item, amount, null);
+    }
+
+    /**
+     * Adds an event about crossing a terrain, or failing to, to the latest news.
+     *
+     * @param kind CROSSED, ITEM_LOST or CANT_LEAVE.
+     * @param terrain The terrain.
+     */
+    public void post(int kind, Terrain terrain) {
+        post(kind, terrain.getNeededItemId(), 0, terrain);
+    }
+
+    /**
+     * Replaces the latest news with ready-made text, such as news restored from a GameSnapshot.
+     *
+     * @param text The text, or null for no news.
+     */
+    public void postText(String text) {
+        startStory();
+        if (text == null) {
+            return;
+        }
+        int slot = (int) (written % CAPACITY);
+        texts[slot] = text;
+        post(TEXT, -1, 0, null);
+    }
+
+    private void post(int kind, int item, int amount, Terrain terrain) {
+        int slot = (int) (written % CAPACITY);
+        kinds[slot] = kind;
+        items[slot] = item;
+        amounts[slot] = amount;
+        terrains[slot] = terrain;
+        if (kind != TEXT) {
+            texts[slot] = null;
+        }
+        written++;
+        latestText = null;
+    }
+
+    /**
+     * @return The sequence number the next event will get; the first event is 0.
+     */
+    public long getSequence() {
+        return written;
+    }
+
+    /**
+     * @return The sequence number of the oldest event still in the ring.
+     */
+    public long getOldest() {
+        return Math.max(0, written - CAPACITY);
+    }
+
+    /**
+     * @return The sequence number of the first event of the latest news, never older than getOldest().
+     */
+    public long getLatestStart() {
+        return Math.max(latestStart, getOldest());
+    }
+
+    public int kindOf(long sequence) {
+        return kinds[(int) (sequence % CAPACITY)];
+    }
+
+    public int itemOf(long sequence) {
+        return items[(int) (sequence % CAPACITY)];
+    }
+
+    public int amountOf(long sequence) {
+        return amounts[(int) (sequence % CAPACITY)];
+    }
+
+    /**
+     * @param kind One of the kind constants.
+     * @return The kind's name, as used in JSON.
+     */
+    public static String nameOf(int kind) {
+        return KIND_NAMES[kind];
+    }
+
+    /**
+     * Renders the latest news with ANSI colors. The text is kept until the next event, so showing the same
+     * news twice renders it once.
+     *
+     * @return The latest news, one line per event.
+     */
+    public String getLatestNews() {
+        if (latestText == null) {
+            StringBuilder sb = new StringBuilder(128);
+            appendLatest(sb, false);
+            latestText = sb.toString();
+        }
+        return latestText;
+    }
+
+    /**
+     * Renders the latest news straight into a buffer, such as the StatusRenderer's.
+     *
+     * @param sb The buffer.
+     * @param plainText true to leave out the ANSI color codes.
+     */
+    public void appendLatest(StringBuilder sb, boolean plainText) {
+        long end = written;
+        for (long s = getLatestStart(); s < end; s++) {
+            if (s > getLatestStart()) {
+                sb.append('\n');
+            }
+            appendEvent(sb, s, plainText);
+        }
+    }
+
+    /**
+     * Renders one event as the text the console shows for it.
+     *
+     * @param sb The buffer.
+     * @param sequence The event's sequence number, from getOldest() up to getSequence() - 1.
+     * @param plainText true to leave out the ANSI color codes.
+     */
+    public void appendEvent(StringBuilder sb, long sequence, boolean plainText) {
+        int slot = (int) (sequence % CAPACITY);
+        int kind = kinds[slot];
+        int amount = amounts[slot];
+        Terrain terrain = terrains[slot];
+        String red = Colors.RED;
+        String yellow = Colors.YELLOW;
+        String reset = Colors.RESET;
+        if (plainText) {
+            red = "";
+            yellow = "";
+            reset = "";
+        }
+        if (kind == ARRIVED) {
+            sb.append("Welcome to town, ").append(game.getHunter().getHunterName()).append('.');
+            if (amount != 0) {
+                sb.append("\nIt's pretty rough around here, so watch yourself.");
+            } else {
+                sb.append("\nWe're just a sleepy little town with mild mannered folk.");
+            }
+        } else if (kind == CROSSED) {
+            sb.append("You used your ").append(terrain.getNeededItem()).append(" to cross the ")
+                    .append(terrain.getTerrainName()).append('.');
+        } else if (kind == ITEM_LOST) {
+            sb.append("Unfortunately, you lost your ").append(terrain.getNeededItem());
+        } else if (kind == CANT_LEAVE) {
+            sb.append("You can't leave town, ").append(game.getHunter().getHunterName()).append(". You don't have a ")
+                    .append(terrain.getNeededItem()).append('.');
+        } else if (kind == NO_TROUBLE) {
+            sb.append("You couldn't find any trouble");
+        } else if (kind == BRAWL_WON) {
+            sb.append(red).append(BRAWL).append("Okay, stranger! You proved yer mettle. Here, take my gold.")
+                    .append(yellow).append("\nYou won the brawl and receive ").append(amount).append(" gold.").append(reset);
+        } else if (kind == BRAWL_LOST) {
+            sb.append(red).append(BRAWL).append("That'll teach you to go lookin' fer trouble in MY town! Now pay up!")
+                    .append("\nYou lost the brawl and pay ").append(yellow).append(amount).append(" gold.").append(reset);
+        } else if (kind == BRAWL_WON_WITH_SWORD) {
+            sb.append(red).append(BRAWL)
+                    .append("The brawler, seeing your sword, realizes he picked a losing fight and gives you his gold.")
+                    .append(reset).append("\nYou won the brawl and receive ").append(yellow).append(amount).append(reset)
+                    .append(" gold.");
+        } else if (kind == DIG_NO_SHOVEL) {
+            sb.append("You can't dig for gold without a shovel");
+        } else if (kind == DIG_ALREADY_DUG) {
+            sb.append("You already dug for gold in this town.");
+        } else if (kind == DUG_GOLD) {
+            sb.append("You dug up ").append(amount).append(" gold");
+        } else if (kind == DUG_DIRT) {
+            sb.append("You dug but only found dirt");
+        } else if (kind == BOUGHT) {
+            sb.append("Ye' got yerself a ").append(ItemCatalog.nameOf(items[slot])).append(". Come again soon.");
+        } else if (kind == GIVEN_FOR_SWORD) {
+            sb.append("The shopkeeper looks at the sword and reluctantly gives you the item for free");
+        } else if (kind == BUY_FAILED) {
+            sb.append("Hmm, either you don't have enough gold or you've already got one of those!");
+        } else if (kind == SOLD_OUT) {
+            sb.append("Sorry, we're all out of those.");
+        } else if (kind == SOLD) {
+            sb.append("Pleasure doin' business with you.");
+        } else if (kind == SELL_FAILED) {
+            sb.append("Stop stringin' me along!");
+        } else if (kind == LEFT_SHOP) {
+            sb.append("You left the shop");
+        } else {
+            sb.append(texts[slot]);
+        }
+    }
+}
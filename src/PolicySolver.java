@@ -0,0 +1,650 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The PolicySolver works out the best possible way to play one difficulty: for every state the game can reach,
+ * the move that gives the highest chance of eventually finding enough treasures to win.<p>
+ * A state is the hunter's gold, the kit, the treasures found so far, the town's terrain and toughness, and whether
+ * the town has been searched and dug. Each one is packed into a single int index, so the whole table is a
+ * plain double[] of win chances and a byte[] of best moves. The states reachable from the start are found
+ * first, then value iteration sweeps over just those, in parallel, until the win chances stop changing.<p>
+ * The chances of each outcome mirror Town.lookForTrouble, Town.digGold, Town.checkItemBreak,
+ * the TerrainCatalog's terrain chances and the treasure roll for a town. Two simplifications keep the table small: gold above
+ * the cap counts as the cap, and every move is treated as arriving in a freshly rolled town.<p>
+ * Once solved, the solver is itself a GamePolicy that plays the best move it found.
+ */
+
+public class PolicySolver implements GamePolicy {
+    // constants
+    public static final int DEFAULT_GOLD_CAP = 32;
+    public static final double TOLERANCE = 1e-6;
+    public static final int MAX_SWEEPS = 100000;
+    // the most elements a Java array can hold
+    public static final int MAX_STATES = Integer.MAX_VALUE - 8;
+
+    // moves
+    private static final int HUNT = 0;
+    private static final int DIG = 1;
+    private static final int TROUBLE = 2;
+    private static final int MOVE = 3;
+    private static final int FIRST_TRADE = 4;
+    private static final byte NO_MOVE = -1;
+
+    // successor markers
+    private static final int WIN = -2;
+    private static final int LOSE = -1;
+    private static final int MAX_SUCCESSORS = TreasureCatalog.MAX_TREASURES;
+    private static final int CHUNK = 64;
+
+    // instance variables
+    private String difficulty;
+    private int goldCap;
+    private int startGold;
+    private double toughness;
+    private double breakChance;
+    private int kitSize;
+    private int[] kitItemIds;
+    private int[] buyCosts;
+    private int[] sellPrices;
+    private int[] terrainBits;
+    private double[] terrainChances;
+    private int swordBit;
+    private int shovelBit;
+    private int treasureBits;
+    private int allTreasures;
+    private int[] treasureBitOf;
+    private int stateCount;
+    private double[] values;
+    private double[] arrivals;
+    private byte[] policy;
+    private boolean[] reachable;
+    private int reachableCount;
+    private int[] runs;
+    private int sweeps;
+
+    /**
+     * Reads the rules for a difficulty from a real game set up at that difficulty.
+     *
+     * @param difficulty The difficulty code: "e", "n", "h" or "s".
+     * @param goldCap The most gold the table tracks; more gold counts as this much.
+     * @throws IllegalArgumentException if the table of states would be too big for an array.
+     */
+    public PolicySolver(String difficulty, int goldCap) {
+        this.difficulty = difficulty;
+        this.goldCap = goldCap;
+        TreasureHunter game = new TreasureHunter(null, new PrintStream(PrintStream.nullOutputStream()), 0);
+        game.setUpHunter("solver", difficulty);
+        startGold = Math.min(game.getHunter().getGold(), goldCap);
+        toughness = game.getToughness();
+        double markdown = game.getMarkdown();
+        if (game.getEasyMode()) {
+            breakChance = 0;
+        } else {
+            breakChance = 0.99;
+        }
+
+        // only items a hunter can actually get in this difficulty take up a bit of the kit
+        int[] sell = ItemCatalog.sellPrices(markdown);
+        int count = 0;
+        int[] ids = new int[ItemCatalog.size()];
+        for (int id = 0; id < ItemCatalog.size(); id++) {
+            if (ItemCatalog.priceOf(id) > 0 || (id == ItemCatalog.SWORD && game.getSamuraiMode())) {
+                ids[count] = id;
+                count++;
+            }
+        }
+        kitSize = count;
+        kitItemIds = new int[kitSize];
+        buyCosts = new int[kitSize];
+        sellPrices = new int[kitSize];
+        swordBit = -1;
+        shovelBit = -1;
+        for (int i = 0; i < kitSize; i++) {
+            kitItemIds[i] = ids[i];
+            buyCosts[i] = ItemCatalog.priceOf(ids[i]);
+            sellPrices[i] = sell[ids[i]];
+            if (ids[i] == ItemCatalog.SWORD) {
+                swordBit = i;
+            } else if (ids[i] == ItemCatalog.SHOVEL) {
+                shovelBit = i;
+            }
+        }
+        terrainBits = new int[TerrainCatalog.size()];
+        terrainChances = new double[TerrainCatalog.size()];
+        for (int t = 0; t < terrainBits.length; t++) {
+            terrainBits[t] = kitBitOf(TerrainCatalog.get(t).getNeededItemId());
+            terrainChances[t] = TerrainCatalog.chanceOf(t);
+        }
+
+        // only treasures that count towards winning take up a bit; every treasure in the catalog is equally likely
+        treasureBitOf = new int[TreasureCatalog.size()];
+        treasureBits = 0;
+        for (int id = 0; id < TreasureCatalog.size(); id++) {
+            treasureBitOf[id] = -1;
+            if (!TreasureCatalog.isWorthless(id)) {
+                treasureBitOf[id] = treasureBits;
+                treasureBits++;
+            }
+        }
+        // each state packs the gold, kit, treasures found, terrain and three flags into one array index,
+        // so the table has to fit in one array; a double holds the count exactly while it is small enough to
+        double states = (goldCap + 1.0) * Math.pow(2, kitSize + treasureBits) * terrainChances.length * 8;
+        if (states > MAX_STATES) {
+            throw new IllegalArgumentException(String.format("The policy table for difficulty %s would need %.3g states "
+                    + "(gold cap %d, %d items, %d valuable treasures) but an array holds at most %d; "
+                    + "use a lower gold cap or fewer valuable treasures", difficulty, states, goldCap, kitSize,
+                    treasureBits, MAX_STATES));
+        }
+        allTreasures = (1 << treasureBits) - 1;
+        stateCount = (int) states;
+    }
+
+    public PolicySolver(String difficulty) {
+        this(difficulty, DEFAULT_GOLD_CAP);
+    }
+
+    /**
+     * Finds the reachable states and runs value iteration until it converges.
+     *
+     * @return this solver, for chaining.
+     */
+    public PolicySolver solve() {
+        findReachableStates();
+        values = new double[stateCount];
+        policy = new byte[stateCount];
+        arrivals = new double[(goldCap + 1) << (kitSize + treasureBits)];
+        int chunks = (runs.length + CHUNK - 1) / CHUNK;
+        double delta = Double.MAX_VALUE;
+        sweeps = 0;
+        while (delta > TOLERANCE && sweeps < MAX_SWEEPS) {
+            IntStream.range(0, arrivals.length).parallel().forEach(this::updateArrival);
+            // states are updated in place while other threads read them; value iteration still converges
+            // when some updates see newer values than others, and it converges in fewer sweeps
+            delta = IntStream.range(0, chunks).parallel().map(chunk -> chunks - 1 - chunk).mapToDouble(this::sweep).max().orElse(0);
+            sweeps++;
+        }
+        return this;
+    }
+
+    public int getReachableStateCount() {
+        return reachableCount;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getSweeps() {
+        return sweeps;
+    }
+
+    /**
+     * @return The chance of winning from the start of a game when every move is the best one.
+     */
+    public double getStartWinChance() {
+        double chance = 0;
+        for (int t = 0; t < terrainChances.length; t++) {
+            chance += terrainChances[t] * toughness * values[encode(startGold, 0, 0, t, 1, 0, 0)];
+            chance += terrainChances[t] * (1 - toughness) * values[encode(startGold, 0, 0, t, 0, 0, 0)];
+        }
+        return chance;
+    }
+
+    public String chooseAction(TreasureHunter game) {
+        int move = bestMove(game);
+        if (move == HUNT) {
+            return "h";
+        } else if (move == DIG) {
+            return "d";
+        } else if (move == MOVE) {
+            return "m";
+        } else if (move >= FIRST_TRADE + kitSize) {
+            return "s";
+        } else if (move >= FIRST_TRADE) {
+            return "b";
+        }
+        return "l";
+    }
+
+    public String chooseItem(TreasureHunter game, boolean buying) {
+        int move = bestMove(game);
+        int bit = (move - FIRST_TRADE) % kitSize;
+        return ItemCatalog.nameOf(kitItemIds[bit]);
+    }
+
+    /**
+     * @return A printable summary of the solve.
+     */
+    public String infoString() {
+        return String.format("difficulty %s: %d reachable of %d states, %d sweeps, best win chance %.4f%%",
+                difficulty, reachableCount, stateCount, sweeps, getStartWinChance() * 100);
+    }
+
+    /**
+     * Looks up the best move for the state a live game is in.
+     */
+    private int bestMove(TreasureHunter game) {
+        Hunter hunter = game.getHunter();
+        Town town = game.getCurrentTown();
+        int kit = 0;
+        for (int i = 0; i < kitSize; i++) {
+            if (hunter.hasItemInKit(kitItemIds[i])) {
+                kit |= 1 << i;
+            }
+        }
+        int treasures = 0;
+        for (int id = 0; id < treasureBitOf.length; id++) {
+            if (treasureBitOf[id] >= 0 && (game.getTreasuresFound() & TreasureCatalog.bit(id)) != 0) {
+                treasures |= 1 << treasureBitOf[id];
+            }
+        }
+        int terrain = Math.max(0, town.getTerrain().getId());
+        int gold = Math.max(1, Math.min(hunter.getGold(), goldCap));
+        int state = encode(gold, kit, treasures, terrain, flag(town.isToughTown()), flag(game.hasSearched()), flag(town.hasDugGold()));
+        if (policy[state] == NO_MOVE) {
+            return TROUBLE;
+        }
+        return policy[state];
+    }
+
+    /**
+     * Marks every state that can be reached from the start of a game, breadth first.
+     */
+    private void findReachableStates() {
+        boolean[] seen = new boolean[stateCount];
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int t = 0; t < terrainChances.length; t++) {
+            for (int tough = 0; tough < 2; tough++) {
+                double chance = terrainChances[t] * toughChance(tough);
+                int state = encode(startGold, 0, 0, t, tough, 0, 0);
+                if (chance > 0 && !seen[state]) {
+                    seen[state] = true;
+                    queue[tail++] = state;
+                }
+            }
+        }
+        int[] next = new int[MAX_SUCCESSORS];
+        double[] chances = new double[MAX_SUCCESSORS];
+        int moves = FIRST_TRADE + 2 * kitSize;
+        while (head < tail) {
+            int state = queue[head++];
+            for (int move = 0; move < moves; move++) {
+                int count = successors(state, move, next, chances);
+                for (int i = 0; i < count; i++) {
+                    if (next[i] >= 0 && !seen[next[i]]) {
+                        seen[next[i]] = true;
+                        queue[tail++] = next[i];
+                    }
+                }
+            }
+        }
+        reachable = seen;
+        reachableCount = tail;
+
+        // a run is every gold amount for one set of the other fields; the sweeps work a run at a time
+        int runCount = 0;
+        int[] found = new int[stateCount / (goldCap + 1)];
+        for (int run = 0; run < found.length; run++) {
+            for (int gold = 0; gold <= goldCap; gold++) {
+                if (seen[run * (goldCap + 1) + gold]) {
+                    found[runCount++] = run;
+                    break;
+                }
+            }
+        }
+        runs = Arrays.copyOf(found, runCount);
+    }
+
+    /**
+     * Updates one chunk of runs, from the most gold down.<p>
+     * Digging and brawling only change gold, so their outcomes lie within a run. Running totals over the run
+     * turn each of those sums into a couple of lookups: totals from the start of the run for gold not yet
+     * updated, and totals of what this sweep already worked out for the gold above.
+     *
+     * @param chunk Which chunk.
+     * @return The biggest change to any win chance in the chunk.
+     */
+    private double sweep(int chunk) {
+        int[] next = new int[MAX_SUCCESSORS];
+        double[] chances = new double[MAX_SUCCESSORS];
+        double[] totals = new double[goldCap + 2];
+        double[] above = new double[goldCap + 2];
+        double[] dugTotals = new double[goldCap + 2];
+        int moves = FIRST_TRADE + 2 * kitSize;
+        int end = Math.min(runs.length, (chunk + 1) * CHUNK);
+        double delta = 0;
+        for (int r = end - 1; r >= chunk * CHUNK; r--) {
+            int run = runs[r];
+            int dug = run & 1;
+            int searched = (run >> 1) & 1;
+            int tough = (run >> 2) & 1;
+            int rest = run >> 3;
+            int terrain = rest % terrainChances.length;
+            rest /= terrainChances.length;
+            int treasures = rest & allTreasures;
+            int kit = rest >> treasureBits;
+            int base = run * (goldCap + 1);
+            int dugBase = (run | 1) * (goldCap + 1);
+            runningTotals(base, totals);
+            runningTotals(dugBase, dugTotals);
+            above[goldCap + 1] = 0;
+            for (int gold = goldCap; gold > 0; gold--) {
+                int state = base + gold;
+                if (!reachable[state]) {
+                    above[gold] = above[gold + 1] + values[state];
+                    continue;
+                }
+                double best = 0;
+                byte bestMove = NO_MOVE;
+                for (int move = 0; move < moves; move++) {
+                    int count;
+                    double value = 0;
+                    if (move == MOVE) {
+                        // every move lands in one of the same twelve fresh towns, so that sum is shared per sweep
+                        count = moveValue(state, chances);
+                        value = chances[0];
+                    } else if (move == DIG) {
+                        count = digValue(gold, kit, dug, dugBase, dugTotals, chances);
+                        value = chances[0];
+                    } else if (move == TROUBLE) {
+                        count = troubleValue(gold, kit, tough, base, totals, above, chances);
+                        value = chances[0];
+                    } else {
+                        count = outcomes(move, gold, kit, treasures, terrain, tough, searched, dug, next, chances);
+                        for (int i = 0; i < count; i++) {
+                            value += chances[i] * valueOf(next[i]);
+                        }
+                    }
+                    if (count > 0 && (value > best || bestMove == NO_MOVE)) {
+                        best = value;
+                        bestMove = (byte) move;
+                    }
+                }
+                delta = Math.max(delta, Math.abs(best - values[state]));
+                values[state] = best;
+                policy[state] = bestMove;
+                above[gold] = above[gold + 1] + best;
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Fills totals so that totals[g] is the sum of the win chances for every gold amount below g in a run.
+     */
+    private void runningTotals(int base, double[] totals) {
+        totals[0] = 0;
+        for (int gold = 0; gold <= goldCap; gold++) {
+            totals[gold + 1] = totals[gold] + values[base + gold];
+        }
+    }
+
+    /**
+     * The sum of the win chances for gold amounts from gold + 1 to gold + most, where amounts over the cap
+     * count as the cap.
+     */
+    private double sumAbove(int gold, int most, int base, double[] totals) {
+        int top = Math.min(gold + most, goldCap);
+        double sum = totals[top + 1] - totals[gold + 1];
+        if (gold + most > goldCap) {
+            sum += (gold + most - goldCap) * values[base + goldCap];
+        }
+        return sum;
+    }
+
+    /**
+     * The same outcomes as successors gives for DIG, summed from the running totals of the dug run.
+     *
+     * @param chances Its first slot is set to the chance of winning after digging.
+     * @return 1, or 0 if the hunter can't dig here.
+     */
+    private int digValue(int gold, int kit, int dug, int dugBase, double[] dugTotals, double[] chances) {
+        if (shovelBit < 0 || (kit & (1 << shovelBit)) == 0 || dug == 1) {
+            return 0;
+        }
+        chances[0] = 0.5 * values[dugBase + gold] + 0.5 / 20 * sumAbove(gold, 20, dugBase, dugTotals);
+        return 1;
+    }
+
+    /**
+     * The same outcomes as successors gives for TROUBLE, summed from the running totals of the run. When no
+     * fight breaks out nothing changes, which just means trying again, so that part is solved exactly instead
+     * of being left for later sweeps to converge on.
+     *
+     * @param chances Its first slot is set to the chance of winning after looking for trouble.
+     * @return 1.
+     */
+    private int troubleValue(int gold, int kit, int tough, int base, double[] totals, double[] above, double[] chances) {
+        double fightChance;
+        if (tough == 1) {
+            fightChance = 0.33;
+        } else {
+            fightChance = 0.66;
+        }
+        boolean hasSword = swordBit >= 0 && (kit & (1 << swordBit)) != 0;
+        double winChance = hasSword ? 1 : 1 - fightChance;
+        int top = Math.min(gold + 10, goldCap);
+        double won = above[gold + 1] - above[top + 1];
+        if (gold + 10 > goldCap) {
+            won += (gold + 10 - goldCap) * values[base + goldCap];
+        }
+        // losing more gold than the hunter has ends the game, which is worth nothing
+        double lost = totals[gold] - totals[Math.max(1, gold - 10)];
+        chances[0] = (winChance * won + (1 - winChance) * lost) / 10;
+        return 1;
+    }
+
+    /**
+     * Works out the chance of winning on arriving in a fresh town, before its terrain and toughness are known.
+     *
+     * @param arrival The kit, treasures and gold, packed the same way as in a state index.
+     */
+    private void updateArrival(int arrival) {
+        int gold = arrival % (goldCap + 1);
+        int treasures = (arrival / (goldCap + 1)) & allTreasures;
+        int kit = (arrival / (goldCap + 1)) >> treasureBits;
+        double chance = 0;
+        for (int t = 0; t < terrainChances.length; t++) {
+            chance += terrainChances[t] * toughness * values[encode(gold, kit, treasures, t, 1, 0, 0)];
+            chance += terrainChances[t] * (1 - toughness) * values[encode(gold, kit, treasures, t, 0, 0, 0)];
+        }
+        arrivals[arrival] = chance;
+    }
+
+    /**
+     * The same outcomes as successors gives for MOVE, summed through the arrival table.
+     *
+     * @param chances Its first slot is set to the chance of winning after the move.
+     * @return 1, or 0 if the hunter can't leave this town.
+     */
+    private int moveValue(int state, double[] chances) {
+        int gold = state % (goldCap + 1);
+        int rest = (state / (goldCap + 1)) >> 3;
+        int terrain = rest % terrainChances.length;
+        rest /= terrainChances.length;
+        int kit = rest >> treasureBits;
+        if (terrainBits[terrain] < 0 || (kit & (1 << terrainBits[terrain])) == 0) {
+            return 0;
+        }
+        int arrival = rest * (goldCap + 1) + gold;
+        int broken = (rest & ~(1 << (terrainBits[terrain] + treasureBits))) * (goldCap + 1) + gold;
+        chances[0] = (1 - breakChance) * arrivals[arrival] + breakChance * arrivals[broken];
+        return 1;
+    }
+
+    private double valueOf(int state) {
+        if (state == WIN) {
+            return 1;
+        } else if (state == LOSE) {
+            return 0;
+        }
+        return values[state];
+    }
+
+    /**
+     * Lists what can happen after a move.
+     *
+     * @param state The state the move is made in.
+     * @param move The move.
+     * @param next Filled with the states that can follow, or WIN or LOSE.
+     * @param chances Filled with the chance of each of those.
+     * @return How many outcomes there are, or 0 if the move can't change anything in this state.
+     */
+    private int successors(int state, int move, int[] next, double[] chances) {
+        int gold = state % (goldCap + 1);
+        int rest = state / (goldCap + 1);
+        int dug = rest & 1;
+        int searched = (rest >> 1) & 1;
+        int tough = (rest >> 2) & 1;
+        rest >>= 3;
+        int terrain = rest % terrainChances.length;
+        rest /= terrainChances.length;
+        int treasures = rest & allTreasures;
+        int kit = rest >> treasureBits;
+        return outcomes(move, gold, kit, treasures, terrain, tough, searched, dug, next, chances);
+    }
+
+    /**
+     * The same as successors, for a state that has already been unpacked.
+     */
+    private int outcomes(int move, int gold, int kit, int treasures, int terrain, int tough, int searched, int dug,
+                         int[] next, double[] chances) {
+        int count = 0;
+
+        if (move == HUNT) {
+            if (searched == 1) {
+                return 0;
+            }
+            for (int id = 0; id < treasureBitOf.length; id++) {
+                int found = treasures;
+                if (treasureBitOf[id] >= 0) {
+                    found |= 1 << treasureBitOf[id];
+                }
+                if (Integer.bitCount(found) >= TreasureCatalog.treasuresToWin()) {
+                    next[count] = WIN;
+                } else {
+                    next[count] = encode(gold, kit, found, terrain, tough, 1, dug);
+                }
+                chances[count++] = 1.0 / treasureBitOf.length;
+            }
+        } else if (move == DIG) {
+            if (shovelBit < 0 || (kit & (1 << shovelBit)) == 0 || dug == 1) {
+                return 0;
+            }
+            int dugState = encode(0, kit, treasures, terrain, tough, searched, 1);
+            next[count] = dugState + gold;
+            chances[count++] = 0.5;
+            for (int g = 1; g <= 20; g++) {
+                next[count] = dugState + capGold(gold + g);
+                chances[count++] = 0.5 / 20;
+            }
+        } else if (move == TROUBLE) {
+            double fightChance;
+            if (tough == 1) {
+                fightChance = 0.33;
+            } else {
+                fightChance = 0.66;
+            }
+            int state = encode(gold, kit, treasures, terrain, tough, searched, dug);
+            next[count] = state;
+            chances[count++] = 1 - fightChance;
+            boolean hasSword = swordBit >= 0 && (kit & (1 << swordBit)) != 0;
+            double winChance = hasSword ? 1 : 1 - fightChance;
+            for (int g = 1; g <= 10; g++) {
+                next[count] = state - gold + capGold(gold + g);
+                chances[count++] = fightChance * winChance / 10;
+                if (!hasSword) {
+                    next[count] = (gold - g <= 0) ? LOSE : state - g;
+                    chances[count++] = fightChance * (1 - winChance) / 10;
+                }
+            }
+        } else if (move == MOVE) {
+            if (terrainBits[terrain] < 0 || (kit & (1 << terrainBits[terrain])) == 0) {
+                return 0;
+            }
+            int bit = 1 << terrainBits[terrain];
+            for (int broke = 0; broke < 2; broke++) {
+                double breakOdds = (broke == 1) ? breakChance : 1 - breakChance;
+                if (breakOdds == 0) {
+                    continue;
+                }
+                int newKit = (broke == 1) ? kit & ~bit : kit;
+                for (int t = 0; t < terrainChances.length; t++) {
+                    for (int newTough = 0; newTough < 2; newTough++) {
+                        double chance = breakOdds * terrainChances[t] * toughChance(newTough);
+                        if (chance > 0) {
+                            next[count] = encode(gold, newKit, treasures, t, newTough, 0, 0);
+                            chances[count++] = chance;
+                        }
+                    }
+                }
+            }
+        } else if (move < FIRST_TRADE + kitSize) {
+            int item = move - FIRST_TRADE;
+            int bit = 1 << item;
+            if ((kit & bit) != 0) {
+                return 0;
+            }
+            boolean free = item == swordBit || (swordBit >= 0 && (kit & (1 << swordBit)) != 0);
+            int cost = buyCosts[item];
+            if (free) {
+                next[count] = encode(gold, kit | bit, treasures, terrain, tough, searched, dug);
+            } else if (cost == 0 || gold < cost) {
+                return 0;
+            } else {
+                next[count] = (gold - cost <= 0) ? LOSE : encode(gold - cost, kit | bit, treasures, terrain, tough, searched, dug);
+            }
+            chances[count++] = 1;
+        } else {
+            int item = move - FIRST_TRADE - kitSize;
+            int bit = 1 << item;
+            if ((kit & bit) == 0 || sellPrices[item] <= 0) {
+                return 0;
+            }
+            next[count] = encode(capGold(gold + sellPrices[item]), kit & ~bit, treasures, terrain, tough, searched, dug);
+            chances[count++] = 1;
+        }
+        return count;
+    }
+
+    /**
+     * Packs a state into its table index. Gold varies fastest, so the outcomes of digging and brawling, which
+     * only change gold, sit next to each other in the table.
+     */
+    private int encode(int gold, int kit, int treasures, int terrain, int tough, int searched, int dug) {
+        int index = (kit << treasureBits) | treasures;
+        index = index * terrainChances.length + terrain;
+        index = (((index << 1 | tough) << 1 | searched) << 1) | dug;
+        return index * (goldCap + 1) + gold;
+    }
+
+    private double toughChance(int tough) {
+        if (tough == 1) {
+            return toughness;
+        }
+        return 1 - toughness;
+    }
+
+    private int capGold(int gold) {
+        return Math.min(gold, goldCap);
+    }
+
+    private int kitBitOf(int itemId) {
+        for (int i = 0; i < kitSize; i++) {
+            if (kitItemIds[i] == itemId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int flag(boolean value) {
+        if (value) {
+            return 1;
+        }
+        return 0;
+    }
+}
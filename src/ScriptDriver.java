@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The ScriptDriver plays recorded command scripts instead of waiting for a person at the keyboard.<p>
+ * A script is exactly what a player would type: the hunter's name, the difficulty, then menu choices and
+ * shop answers, one or several per line. It may start with a "# seed: n" line to fix the game's random seed (the default is 0),
+ * and any other lines starting with # before the name are ignored.<p>
+ * Game output is thrown away and each script produces a ScriptResult; a directory of scripts is
+ * run in parallel across all cores.
+ */
+
+public class ScriptDriver {
+    // constants
+    private static final String SEED_HEADER = "# seed:";
+    private static final PrintStream NO_OUTPUT = new PrintStream(PrintStream.nullOutputStream());
+
+    /**
+     * Runs one script.
+     *
+     * @param name The script's name, used in the result.
+     * @param text The whole script.
+     * @return What happened.
+     */
+    public ScriptResult run(String name, String text) {
+        long start = System.nanoTime();
+        long seed = 0;
+        int bodyStart = 0;
+        while (bodyStart < text.length() && text.startsWith("#", bodyStart)) {
+            int lineEnd = text.indexOf('\n', bodyStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            String header = text.substring(bodyStart, lineEnd).trim();
+            if (header.startsWith(SEED_HEADER)) {
+                seed = Long.parseLong(header.substring(SEED_HEADER.length()).trim());
+            }
+            bodyStart = Math.min(text.length(), lineEnd + 1);
+        }
+
+        TreasureHunter game = new TreasureHunter(new GameInput(text.substring(bodyStart)), NO_OUTPUT, seed);
+        String outcome;
+        String error = null;
+        try {
+            game.play();
+            if (game.gameWon()) {
+                outcome = ScriptResult.WON;
+            } else if (game.getHunter().gameOver()) {
+                outcome = ScriptResult.LOST;
+            } else {
+                outcome = ScriptResult.QUIT;
+            }
+        } catch (NoSuchElementException e) {
+            // the script ran out of lines before the game ended
+            outcome = ScriptResult.UNFINISHED;
+        } catch (RuntimeException e) {
+            outcome = ScriptResult.ERROR;
+            error = e.toString();
+        }
+        return new ScriptResult(name, game, outcome, System.nanoTime() - start, error);
+    }
+
+    /**
+     * Runs one script file, or every file in a directory in parallel.
+     *
+     * @param path A script file or a directory of scripts.
+     * @return The results, sorted by script name.
+     * @throws IOException if the scripts can't be listed.
+     */
+    public List<ScriptResult> runAll(Path path) throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.list(path)) {
+                files.filter(Files::isRegularFile).forEach(scripts::add);
+            }
+        } else {
+            scripts.add(path);
+        }
+        return scripts.parallelStream()
+                .map(this::runFile)
+                .sorted(Comparator.comparing(ScriptResult::getScript))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Runs every script under a path and writes one JSON line per script, followed by a summary on the report stream.
+     *
+     * @param path A script file or a directory of scripts.
+     * @param results Where the JSON lines are written.
+     * @param report Where the summary is written.
+     * @throws IOException if the scripts can't be listed.
+     */
+    public void report(Path path, PrintStream results, PrintStream report) throws IOException {
+        long start = System.nanoTime();
+        List<ScriptResult> all = runAll(path);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long turns = 0;
+        int won = 0;
+        int lost = 0;
+        int failed = 0;
+        for (ScriptResult result : all) {
+            results.println(result.toJson());
+            turns += result.getTurns();
+            if (result.getOutcome().equals(ScriptResult.WON)) {
+                won++;
+            } else if (result.getOutcome().equals(ScriptResult.LOST)) {
+                lost++;
+            } else if (result.getOutcome().equals(ScriptResult.ERROR)) {
+                failed++;
+            }
+        }
+        results.flush();
+        report.printf("%d scripts (%d won, %d lost, %d errors), %d turns in %.2fs: %.0f scripts/sec, %.0f turns/sec%n",
+                all.size(), won, lost, failed, turns, seconds, all.size() / seconds, turns / seconds);
+    }
+
+    /**
+     * Runs one script file; a file that can't be read is that script's error, and the other scripts still run.
+     */
+    private ScriptResult runFile(Path file) {
+        String name = file.getFileName().toString();
+        long start = System.nanoTime();
+        String text;
+        try {
+            text = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return new ScriptResult(name, null, ScriptResult.ERROR, System.nanoTime() - start, e.toString());
+        }
+        return run(name, text);
+    }
+}
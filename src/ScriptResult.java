@@ -0,0 +1,76 @@
+/**
+ * The outcome of running one command script through the ScriptDriver.
+ */
+
+public class ScriptResult {
+    // outcomes
+    public static final String WON = "won";
+    public static final String LOST = "lost";
+    public static final String QUIT = "quit";
+    public static final String UNFINISHED = "unfinished";
+    public static final String ERROR = "error";
+
+    // instance variables
+    private String script;
+    private String hunterName;
+    private String difficulty;
+    private String outcome;
+    private int turns;
+    private int gold;
+    private int treasures;
+    private long nanos;
+    private String error;
+
+    /**
+     * @param script The script's file name.
+     * @param game The game after the script ran, or null if it never started.
+     * @param outcome One of the outcome constants.
+     * @param nanos How long the script took to run.
+     * @param error What went wrong, or null.
+     */
+    public ScriptResult(String script, TreasureHunter game, String outcome, long nanos, String error) {
+        this.script = script;
+        this.outcome = outcome;
+        this.nanos = nanos;
+        this.error = error;
+        if (game != null && game.getHunter() != null) {
+            hunterName = game.getHunter().getHunterName();
+            difficulty = game.getDifficulty();
+            turns = game.getTurns();
+            gold = game.getHunter().getGold();
+            treasures = game.getTreasureCount();
+        }
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * @return The result as one line of JSON.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"script\":").append(Json.quote(script));
+        sb.append(",\"hunter\":").append(Json.quote(hunterName));
+        sb.append(",\"difficulty\":").append(Json.quote(difficulty));
+        sb.append(",\"outcome\":").append(Json.quote(outcome));
+        sb.append(",\"turns\":").append(turns);
+        sb.append(",\"gold\":").append(gold);
+        sb.append(",\"treasures\":").append(treasures);
+        sb.append(",\"micros\":").append(nanos / 1000);
+        if (error != null) {
+            sb.append(",\"error\":").append(Json.quote(error));
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+}
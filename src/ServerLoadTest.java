@@ -0,0 +1,130 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test for the GameServer.<p>
+ * Connects many sessions at once, each on a virtual thread, waits until they are all in a game,
+ * then has every session play the same number of turns and reports the turn latency percentiles.<p>
+ * The server and the clients share one process, so a run takes two file descriptors per session. The default
+ * of 9000 sessions fits under a descriptor limit (ulimit -n) of 20000; pass more sessions where it is higher.<p>
+ * Usage: ServerLoadTest [sessions] [turns]
+ */
+
+public class ServerLoadTest {
+    // constants
+    private static final String PROMPT = "What's your next move? ";
+    private static final int BUFFER_SIZE = 512;
+
+    public static void main(String[] args) throws Exception {
+        int sessionCount = 9000;
+        int turns = 20;
+        if (args.length > 0) {
+            sessionCount = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            turns = Integer.parseInt(args[1]);
+        }
+
+        GameServer server = new GameServer(0);
+        server.start();
+        int port = server.getPort();
+        CountDownLatch connected = new CountDownLatch(sessionCount);
+        CountDownLatch go = new CountDownLatch(1);
+        int turnsPerSession = turns;
+
+        List<Future<long[]>> results = new ArrayList<>();
+        long start;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessionCount; i++) {
+                results.add(clients.submit(() -> playSession(port, turnsPerSession, connected, go)));
+            }
+            connected.await();
+            System.out.println(server.getActiveSessions() + " sessions connected");
+            start = System.nanoTime();
+            go.countDown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = new long[sessionCount * turns];
+        int count = 0;
+        for (Future<long[]> result : results) {
+            long[] sessionLatencies = result.get();
+            System.arraycopy(sessionLatencies, 0, latencies, count, sessionLatencies.length);
+            count += sessionLatencies.length;
+        }
+        Arrays.sort(latencies, 0, count);
+        System.out.printf("%d turns in %.2fs (%.0f turns/sec)%n", count, seconds, count / seconds);
+        System.out.printf("turn latency: p50 %.2fms, p99 %.2fms, max %.2fms%n",
+                percentile(latencies, count, 0.5), percentile(latencies, count, 0.99), latencies[count - 1] / 1e6);
+        server.close();
+    }
+
+    /**
+     * Plays one session: starts an easy game, waits for every other session, then explores repeatedly.
+     *
+     * @return The latency of each turn in nanoseconds.
+     */
+    private static long[] playSession(int port, int turns, CountDownLatch connected, CountDownLatch go) throws IOException, InterruptedException {
+        long[] latencies = new long[turns];
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            // the prompt is scanned for a byte at a time, so read it through a buffer, not a syscall per byte
+            InputStream in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            OutputStream out = socket.getOutputStream();
+            out.write("loadtest\ne\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            waitForPrompt(in);
+            connected.countDown();
+            go.await();
+            byte[] explore = "e\n".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < turns; i++) {
+                long sent = System.nanoTime();
+                out.write(explore);
+                out.flush();
+                waitForPrompt(in);
+                latencies[i] = System.nanoTime() - sent;
+            }
+            out.write("x\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        return latencies;
+    }
+
+    /**
+     * Reads from the server until the menu prompt has been received.
+     */
+    private static void waitForPrompt(InputStream in) throws IOException {
+        byte[] prompt = PROMPT.getBytes(StandardCharsets.UTF_8);
+        int matched = 0;
+        while (matched < prompt.length) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("server closed the session");
+            }
+            if (b == prompt[matched]) {
+                matched++;
+            } else if (b == prompt[0]) {
+                matched = 1;
+            } else {
+                matched = 0;
+            }
+        }
+    }
+
+    private static double percentile(long[] sorted, int count, double fraction) {
+        int idx = (int) Math.min(count - 1, Math.ceil(count * fraction) - 1);
+        return sorted[Math.max(0, idx)] / 1e6;
+    }
+}
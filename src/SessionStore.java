@@ -0,0 +1,481 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The SessionStore keeps games nobody is playing right now outside the Java heap, so a server can hold
+ * hundreds of thousands of them without the garbage collector having to look at any.<p>
+ * A parked game is its GameSnapshot packed into a fixed-size binary record in one direct ByteBuffer: the
+ * hunter's name, gold, kit and treasures, the turn count, the world seed and the current town, with its
+ * news, and then the towns dug so far, as the nonzero words of the World's dug-town bitset with their
+ * indexes. The towns' terrain, shops and toughness aren't stored, since they are rebuilt from the world seed.
+ * When the buffer is full, the least recently parked record is moved to a spill file to make room, and a
+ * record taken back from the file frees its place there for the next one.<p>
+ * Which record belongs to which game is kept in primitive arrays, an open-addressed table from game id to
+ * place and a linked list of places in the order they were parked, so a parked game costs the heap a few
+ * array slots and no objects at all. Every method takes one ReentrantLock, so games on virtual threads that
+ * wait for the spill file give their carrier threads back.
+ */
+
+public class SessionStore {
+    // constants
+    public static final int RECORD_SIZE = 384;
+    private static final int ID = 0;
+    private static final int GOLD = 8;
+    private static final int KIT = 12;
+    private static final int TREASURES = 20;
+    private static final int TREASURE_COUNT = 28;
+    private static final int TURNS = 32;
+    private static final int TOWN_ID = 36;
+    private static final int WORLD_SIZE = 40;
+    private static final int TOWN_CACHE_SIZE = 44;
+    private static final int WORLD_SEED = 48;
+    private static final int RANDOM_SEED = 56;
+    private static final int FLAGS = 64;
+    private static final int DIFFICULTY = 65;
+    private static final int NAME_LENGTH = 66;
+    private static final int NEWS_LENGTH = 68;
+    private static final int DUG_WORDS = 70;
+    private static final int TEXT = 72;
+    private static final int DUG_WORD_SIZE = 12;
+    private static final int NO_NEWS = -1;
+
+    // the bits of a record's flags
+    private static final byte HAS_SWORD = 1;
+    private static final byte SEARCHED = 2;
+    private static final byte ENDED = 4;
+
+    private static final int NONE = -1;
+    private static final long EMPTY = 0;
+
+    // instance variables
+    private ReentrantLock lock;
+    private ByteBuffer memory;
+    private long[] memoryIds;
+    private int[] newer;
+    private int[] older;
+    private int newest;
+    private int oldest;
+    private int[] freeMemory;
+    private int freeMemoryCount;
+    private int memoryCount;
+    private FileChannel spill;
+    private ByteBuffer record;
+    private int[] freeDisk;
+    private int freeDiskCount;
+    private int diskSlots;
+    private int diskCount;
+    private long[] keys;
+    private int[] places;
+    private int size;
+
+    /**
+     * @param capacity How many games are kept in memory before the least recently parked go to the spill file.
+     * @param spillFile The spill file; it is emptied now and deleted when the store is closed.
+     * @throws IOException if the spill file can't be opened.
+     */
+    public SessionStore(int capacity, Path spillFile) throws IOException {
+        if (capacity < 1 || capacity > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("A session store holds from 1 to " + Integer.MAX_VALUE / RECORD_SIZE + " games in memory");
+        }
+        lock = new ReentrantLock();
+        memory = ByteBuffer.allocateDirect(capacity * RECORD_SIZE);
+        memoryIds = new long[capacity];
+        newer = new int[capacity];
+        older = new int[capacity];
+        newest = NONE;
+        oldest = NONE;
+        freeMemory = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            freeMemory[i] = capacity - 1 - i;
+        }
+        freeMemoryCount = capacity;
+        spill = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+        record = ByteBuffer.allocate(RECORD_SIZE);
+        freeDisk = new int[16];
+        keys = new long[16];
+        places = new int[16];
+    }
+
+    /**
+     * Packs a game into the store.
+     *
+     * @param id The game's id, which must not be 0.
+     * @param snapshot The game.
+     * @return false if the game can't be packed into a record, because it has its own BalanceSettings or its
+     *         name, news and dug towns are too long; the game should be kept as it is.
+     */
+    public boolean put(long id, GameSnapshot snapshot) {
+        if (id == EMPTY) {
+            throw new IllegalArgumentException("A parked game's id must not be 0");
+        }
+        if (snapshot.getBalance() != null) {
+            return false;
+        }
+        byte[] name = snapshot.getHunterName().getBytes(StandardCharsets.UTF_8);
+        byte[] news = new byte[0];
+        if (snapshot.getLatestNews() != null) {
+            news = snapshot.getLatestNews().getBytes(StandardCharsets.UTF_8);
+        }
+        long[] dugTowns = snapshot.getDugTowns();
+        int dugWords = 0;
+        for (long word : dugTowns) {
+            if (word != 0) {
+                dugWords++;
+            }
+        }
+        if (TEXT + name.length + news.length + dugWords * DUG_WORD_SIZE > RECORD_SIZE) {
+            return false;
+        }
+        lock.lock();
+        try {
+            remove(id);
+            if (freeMemoryCount == 0) {
+                spillOldest();
+            }
+            freeMemoryCount--;
+            int slot = freeMemory[freeMemoryCount];
+            write(memory, slot * RECORD_SIZE, id, snapshot, name, news, dugWords);
+            memoryIds[slot] = id;
+            linkNewest(slot);
+            memoryCount++;
+            index(id, slot);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a game out of the store.
+     *
+     * @param id The game's id.
+     * @return The game, or null if it isn't parked here.
+     */
+    public GameSnapshot take(long id) {
+        lock.lock();
+        try {
+            int place = lookup(id);
+            if (place == NONE) {
+                return null;
+            }
+            GameSnapshot snapshot;
+            if (place >= 0) {
+                snapshot = read(memory, place * RECORD_SIZE);
+                freeMemorySlot(place);
+            } else {
+                int diskSlot = -place - 2;
+                readDisk(diskSlot);
+                snapshot = read(record, 0);
+                freeDiskSlot(diskSlot);
+            }
+            unindex(id);
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets a parked game.
+     *
+     * @param id The game's id.
+     * @return true if it was parked here.
+     */
+    public boolean remove(long id) {
+        lock.lock();
+        try {
+            int place = lookup(id);
+            if (place == NONE) {
+                return false;
+            }
+            if (place >= 0) {
+                freeMemorySlot(place);
+            } else {
+                freeDiskSlot(-place - 2);
+            }
+            unindex(id);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return How many games are parked, in memory and in the spill file.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return How many parked games are in memory.
+     */
+    public int getMemoryCount() {
+        lock.lock();
+        try {
+            return memoryCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return How many parked games are in the spill file.
+     */
+    public int getDiskCount() {
+        lock.lock();
+        try {
+            return diskCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes and deletes the spill file; games parked there are lost.
+     */
+    public void close() throws IOException {
+        spill.close();
+    }
+
+    /**
+     * Moves the least recently parked game from memory to the spill file.
+     */
+    private void spillOldest() {
+        int slot = oldest;
+        int diskSlot;
+        if (freeDiskCount > 0) {
+            freeDiskCount--;
+            diskSlot = freeDisk[freeDiskCount];
+        } else {
+            diskSlot = diskSlots;
+            diskSlots++;
+        }
+        record.clear();
+        record.put(0, memory, slot * RECORD_SIZE, RECORD_SIZE);
+        try {
+            while (record.hasRemaining()) {
+                spill.write(record, (long) diskSlot * RECORD_SIZE + record.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long id = memoryIds[slot];
+        freeMemorySlot(slot);
+        diskCount++;
+        index(id, -diskSlot - 2);
+    }
+
+    private void readDisk(int diskSlot) {
+        record.clear();
+        try {
+            while (record.hasRemaining()) {
+                if (spill.read(record, (long) diskSlot * RECORD_SIZE + record.position()) < 0) {
+                    throw new IOException("The spill file ends in the middle of a record");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void freeMemorySlot(int slot) {
+        unlink(slot);
+        memoryIds[slot] = EMPTY;
+        freeMemory[freeMemoryCount] = slot;
+        freeMemoryCount++;
+        memoryCount--;
+    }
+
+    private void freeDiskSlot(int diskSlot) {
+        if (freeDiskCount == freeDisk.length) {
+            int[] bigger = new int[freeDisk.length * 2];
+            System.arraycopy(freeDisk, 0, bigger, 0, freeDiskCount);
+            freeDisk = bigger;
+        }
+        freeDisk[freeDiskCount] = diskSlot;
+        freeDiskCount++;
+        diskCount--;
+    }
+
+    private void linkNewest(int slot) {
+        older[slot] = newest;
+        newer[slot] = NONE;
+        if (newest != NONE) {
+            newer[newest] = slot;
+        } else {
+            oldest = slot;
+        }
+        newest = slot;
+    }
+
+    private void unlink(int slot) {
+        if (newer[slot] != NONE) {
+            older[newer[slot]] = older[slot];
+        } else {
+            newest = older[slot];
+        }
+        if (older[slot] != NONE) {
+            newer[older[slot]] = newer[slot];
+        } else {
+            oldest = newer[slot];
+        }
+    }
+
+    private static void write(ByteBuffer buffer, int at, long id, GameSnapshot snapshot, byte[] name, byte[] news,
+                              int dugWords) {
+        byte flags = 0;
+        if (snapshot.hasSword()) {
+            flags |= HAS_SWORD;
+        }
+        if (snapshot.hasSearched()) {
+            flags |= SEARCHED;
+        }
+        if (snapshot.isEnded()) {
+            flags |= ENDED;
+        }
+        buffer.putLong(at + ID, id);
+        buffer.putInt(at + GOLD, snapshot.getGold());
+        buffer.putLong(at + KIT, snapshot.getKit());
+        buffer.putLong(at + TREASURES, snapshot.getTreasuresFound());
+        buffer.putInt(at + TREASURE_COUNT, snapshot.getTreasureCount());
+        buffer.putInt(at + TURNS, snapshot.getTurns());
+        buffer.putInt(at + TOWN_ID, snapshot.getTownId());
+        buffer.putInt(at + WORLD_SIZE, snapshot.getWorldSize());
+        buffer.putInt(at + TOWN_CACHE_SIZE, snapshot.getTownCacheSize());
+        buffer.putLong(at + WORLD_SEED, snapshot.getWorldSeed());
+        buffer.putLong(at + RANDOM_SEED, snapshot.getRandomSeed());
+        buffer.put(at + FLAGS, flags);
+        buffer.put(at + DIFFICULTY, (byte) snapshot.getDifficulty().charAt(0));
+        buffer.putShort(at + NAME_LENGTH, (short) name.length);
+        if (snapshot.getLatestNews() == null) {
+            buffer.putShort(at + NEWS_LENGTH, (short) NO_NEWS);
+        } else {
+            buffer.putShort(at + NEWS_LENGTH, (short) news.length);
+        }
+        buffer.put(at + TEXT, name);
+        buffer.put(at + TEXT + name.length, news);
+        buffer.putShort(at + DUG_WORDS, (short) dugWords);
+        long[] dugTowns = snapshot.getDugTowns();
+        int dugAt = at + TEXT + name.length + news.length;
+        for (int i = 0; i < dugTowns.length; i++) {
+            if (dugTowns[i] != 0) {
+                buffer.putInt(dugAt, i);
+                buffer.putLong(dugAt + 4, dugTowns[i]);
+                dugAt += DUG_WORD_SIZE;
+            }
+        }
+    }
+
+    private static GameSnapshot read(ByteBuffer buffer, int at) {
+        byte flags = buffer.get(at + FLAGS);
+        byte[] name = new byte[buffer.getShort(at + NAME_LENGTH)];
+        buffer.get(at + TEXT, name);
+        String news = null;
+        int newsLength = buffer.getShort(at + NEWS_LENGTH);
+        int dugAt = at + TEXT + name.length;
+        if (newsLength != NO_NEWS) {
+            byte[] newsBytes = new byte[newsLength];
+            buffer.get(at + TEXT + name.length, newsBytes);
+            news = new String(newsBytes, StandardCharsets.UTF_8);
+            dugAt += newsLength;
+        }
+        long[] dugTowns = new long[(buffer.getInt(at + WORLD_SIZE) + 63) >>> 6];
+        int dugWords = buffer.getShort(at + DUG_WORDS);
+        for (int i = 0; i < dugWords; i++) {
+            dugTowns[buffer.getInt(dugAt)] = buffer.getLong(dugAt + 4);
+            dugAt += DUG_WORD_SIZE;
+        }
+        return new GameSnapshot(new String(name, StandardCharsets.UTF_8), String.valueOf((char) buffer.get(at + DIFFICULTY)),
+                null, buffer.getInt(at + GOLD), buffer.getLong(at + KIT), (flags & HAS_SWORD) != 0,
+                buffer.getLong(at + TREASURES), buffer.getInt(at + TREASURE_COUNT), (flags & SEARCHED) != 0,
+                buffer.getInt(at + TURNS), (flags & ENDED) != 0, buffer.getLong(at + WORLD_SEED),
+                buffer.getInt(at + WORLD_SIZE), buffer.getInt(at + TOWN_CACHE_SIZE), buffer.getInt(at + TOWN_ID),
+                dugTowns, news, buffer.getLong(at + RANDOM_SEED));
+    }
+
+    /**
+     * @return Where the game is: a memory slot, or -2 - its place in the spill file, or NONE if it isn't here.
+     */
+    private int lookup(long id) {
+        int mask = keys.length - 1;
+        for (int i = hash(id) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return places[i];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Adds a game to the index, or moves it if it's already there.
+     */
+    private void index(long id, int place) {
+        int mask = keys.length - 1;
+        int i = hash(id) & mask;
+        while (keys[i] != EMPTY && keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == EMPTY) {
+            keys[i] = id;
+            size++;
+        }
+        places[i] = place;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Drops a game from the index, shifting back the entries after it so no lookup stops short.
+     */
+    private void unindex(long id) {
+        int mask = keys.length - 1;
+        int i = hash(id) & mask;
+        while (keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            // move the entry back into the gap unless its home lies cyclically between the gap and where it is
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                places[gap] = places[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldPlaces = places;
+        keys = new long[oldKeys.length * 2];
+        places = new int[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                index(oldKeys[i], oldPlaces[i]);
+            }
+        }
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A SharedWorld is a world that several games play in at once, such as every session on a server.<p>
+ * Each game still has its own World and Towns, but they are all rolled from this world's seed, so hunters
+ * who reach the same town number are in the same town. The shops there sell from one ShopStock, made the
+ * first time any hunter reaches the town, so what one hunter buys the others can no longer get.<p>
+ * Stock is never used up for good. An item that breaks as a hunter leaves a town goes back on that town's
+ * shelves, and when a game ends, is quit, disconnects or is dropped, the hunter's kit goes back on the shelves of
+ * the town the hunter was in. So every item is either on a shelf or in the kit of a game still being played
+ * (or parked), and the world's total of each item stays as it was stocked.
+ */
+
+public class SharedWorld {
+    // instance variables
+    private long seed;
+    private int stockPerItem;
+    private ConcurrentHashMap<Integer, ShopStock> stocks;
+
+    /**
+     * @param seed The world seed every game in the world uses.
+     * @param stockPerItem How many of each item every shop starts with.
+     */
+    public SharedWorld(long seed, int stockPerItem) {
+        this.seed = seed;
+        this.stockPerItem = stockPerItem;
+        stocks = new ConcurrentHashMap<>();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getStockPerItem() {
+        return stockPerItem;
+    }
+
+    /**
+     * Returns the stock of a town's shop, stocking it the first time.
+     *
+     * @param townId The town's number.
+     * @return The stock, the same object for every game in the world.
+     */
+    public ShopStock stockAt(int townId) {
+        return stocks.computeIfAbsent(townId, id -> new ShopStock(stockPerItem));
+    }
+
+    /**
+     * Puts every item in a kit back on the shelves of a town's shop, when the game holding it is over.
+     *
+     * @param townId The number of the town the hunter was in.
+     * @param kit The kit bitmask.
+     */
+    public void returnKit(int townId, long kit) {
+        ShopStock stock = stockAt(townId);
+        long items = kit;
+        while (items != 0) {
+            stock.putBack(Long.numberOfTrailingZeros(items));
+            items &= items - 1;
+        }
+    }
+}
@@ -1,38 +1,51 @@
-import java.util.Scanner;
+import java.io.PrintStream;
 
 /**
  * The Shop class controls the cost of the items in the Treasure Hunt game. <p>
+ * Prices come from the ItemCatalog; sell prices are looked up in a table built once per markdown level. <p>
+ * A game with its own BalanceSettings uses the price tables from those instead. <p>
  * The Shop class also acts as a go between for the Hunter's buyItem() method. <p>
+ * A shop in a SharedWorld sells from a ShopStock that the same town's shop in every other game sells from too,
+ * so the hunter trading is passed to each method rather than kept in the shop. <p>
+ * A game with MarketPrices has every price scaled by the market's latest factor for the item. <p>
+ * Only the shopkeeper's questions are printed; how a trade turns out is posted to the game's NewsFeed. <p>
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Shop {
-    // constants
-    private static final int WATER_COST = 2;
-    private static final int ROPE_COST = 4;
-    private static final int MACHETE_COST = 6;
-    private static final int HORSE_COST = 12;
-    private static final int BOAT_COST = 20;
-    private static final int BOOT_COST = 5;
-    private static final int SHOVEL_COST = 8;
-    private static final int SWORD_COST = 0;
-
-    // static variables
-    private static final Scanner SCANNER = new Scanner(System.in);
-
     // instance variables
-    private double markdown;
-    private Hunter customer;
+    private int[] buyPrices;
+    private int[] sellPrices;
+    private BalanceSettings balance;
+    private ShopStock stock;
+    private MarketPrices marketPrices;
     public TreasureHunter treasureHunter;
 
     /**
-     * The Shop constructor takes in a markdown value and leaves customer null until one enters the shop.
+     * The Shop constructor takes in a markdown value; the shop never runs out of anything.
      *
      * @param markdown Percentage of markdown for selling items in decimal format.
      */
     public Shop(double markdown, TreasureHunter treasureHunter) {
-        this.markdown = markdown;
-        customer = null; // customer is set in the enter method
+        this(markdown, treasureHunter, null);
+    }
+
+    /**
+     * Constructs a shop that sells from a limited stock.
+     *
+     * @param markdown Percentage of markdown for selling items in decimal format.
+     * @param stock The items on the shelves, possibly shared with other games' shops, or null for no limit.
+     */
+    public Shop(double markdown, TreasureHunter treasureHunter, ShopStock stock) {
+        balance = treasureHunter.getBalance();
+        if (balance != null) {
+            buyPrices = balance.getBuyPrices();
+            sellPrices = balance.getSellPrices();
+        } else {
+            sellPrices = ItemCatalog.sellPrices(markdown);
+        }
+        this.stock = stock;
+        marketPrices = treasureHunter.getMarketPrices();
         this.treasureHunter = treasureHunter;
     }
 
@@ -41,44 +54,60 @@ public class Shop {
      *
      * @param hunter the Hunter entering the shop
      * @param buyOrSell String that determines if hunter is "B"uying or "S"elling
-     * @return a String to be used for printing in the latest news
      */
-    public String enter(Hunter hunter, String buyOrSell) {
-        customer = hunter;
+    public void enter(Hunter hunter, String buyOrSell) {
+        PrintStream out = treasureHunter.getOutput();
         if (buyOrSell.equals("b")) {
-            System.out.println("Welcome to the shop! We have the finest wares in town.");
-            System.out.println("Currently we have the following items:");
-            System.out.println(inventory());
-            System.out.print("What're you lookin' to buy? ");
-            String item = SCANNER.nextLine().toLowerCase();
+            out.println("Welcome to the shop! We have the finest wares in town.");
+            out.println("Currently we have the following items:");
+            out.println(inventory());
+            out.print("What're you lookin' to buy? ");
+            String item = treasureHunter.readWord();
             int cost = checkMarketPrice(item, true);
             if ( !item.equals("sword") && cost == 0) {
-                System.out.println("We ain't got none of those.");
-            } else if (Hunter.hasSword) {
-                buyItem(item);
+                out.println("We ain't got none of those.");
+            } else if (hunter.hasSword()) {
+                buyItem(hunter, item, cost);
             } else {
-                System.out.print("It'll cost you " + cost + " gold. Buy it (y/n)? ");
-                String option = SCANNER.nextLine().toLowerCase();
+                out.print("It'll cost you " + cost + " gold. Buy it (y/n)? ");
+                String option = treasureHunter.readWord();
                 if (option.equals("y")) {
-                    buyItem(item);
+                    // the price quoted is the price paid, even if the market has moved since
+                    buyItem(hunter, item, cost);
                 }
             }
         } else {
-            System.out.println("What're you lookin' to sell? ");
-            System.out.print("You currently have the following items: " + customer.getInventory());
-            String item = SCANNER.nextLine().toLowerCase();
+            out.println("What're you lookin' to sell? ");
+            out.print("You currently have the following items: " + hunter.getInventory());
+            String item = treasureHunter.readWord();
             int cost = checkMarketPrice(item, false);
             if (cost == 0) {
-                System.out.println("We don't want none of those.");
+                out.println("We don't want none of those.");
             } else {
-                System.out.print("It'll get you " + cost + " gold. Sell it (y/n)? ");
-                String option = SCANNER.nextLine().toLowerCase();
+                out.print("It'll get you " + cost + " gold. Sell it (y/n)? ");
+                String option = treasureHunter.readWord();
                 if (option.equals("y")) {
-                    sellItem(item);
+                    sellItem(hunter, item, cost);
                 }
             }
         }
-        return "You left the shop";
+        treasureHunter.getNews().post(NewsFeed.LEFT_SHOP, -1, 0);
+    }
+
+    /**
+     * Method for trading at the shop when the item is already known, so nothing is read from the user.
+     *
+     * @param hunter the Hunter entering the shop
+     * @param buyOrSell String that determines if hunter is "B"uying or "S"elling
+     * @param item the item to buy or sell
+     */
+    public void enter(Hunter hunter, String buyOrSell, String item) {
+        if (buyOrSell.equals("b")) {
+            buyItem(hunter, item);
+        } else {
+            sellItem(hunter, item);
+        }
+        treasureHunter.getNews().post(NewsFeed.LEFT_SHOP, -1, 0);
     }
 
     /**
@@ -88,50 +117,100 @@ public class Shop {
      * @return the string representing the shop's items available for purchase and their prices.
      */
     public String inventory() {
-        String str = "Water: " + WATER_COST + " gold\n";
-        str += "Rope: " + ROPE_COST + " gold\n";
-        str += "Machete: " + MACHETE_COST + " gold\n";
-        str += "Horse: " + HORSE_COST + " gold\n";
-        str += "Boat: " + BOAT_COST + " gold\n";
-        str += "Boots: " + BOOT_COST + " gold\n";
-        str += "Shovel: " + SHOVEL_COST + " gold\n";
-        if (treasureHunter.samuraiMode) {
-            str += "Sword " + SWORD_COST + " gold\n";
-        }
-        return str;
+        String listing;
+        if (marketPrices != null) {
+            listing = marketPrices.listing(buyPrices, treasureHunter.samuraiMode);
+        } else if (balance != null) {
+            listing = balance.listing(treasureHunter.samuraiMode);
+        } else {
+            listing = ItemCatalog.listing(treasureHunter.samuraiMode);
+        }
+        if (stock == null) {
+            return listing;
+        }
+        StringBuilder left = new StringBuilder(listing);
+        left.append("Left on the shelves:");
+        for (int id = 0; id < ItemCatalog.size(); id++) {
+            if (treasureHunter.samuraiMode || !ItemCatalog.isSamuraiOnly(id)) {
+                left.append(' ').append(ItemCatalog.nameOf(id)).append(' ').append(stock.count(id));
+            }
+        }
+        return left.toString();
     }
 
     /**
-     * A method that lets the customer (a Hunter) buy an item.
+     * @return The items on this shop's shelves, or null if it never runs out.
+     */
+    public ShopStock getStock() {
+        return stock;
+    }
+
+    /**
+     * A method that lets the customer (a Hunter) buy an item.<p>
+     * An item with limited stock is taken off the shelf first and put back if the hunter can't pay for it,
+     * so two hunters can never both buy the last one. A hunter who already has the item takes nothing.
      *
+     * @param customer The Hunter buying.
      * @param item The item being bought.
      */
-    public void buyItem(String item) {
-        int costOfItem = checkMarketPrice(item, true);
-        if (Hunter.hasSword) {
-            customer.buyItem(item, costOfItem);
-            System.out.println("The shopkeeper looks at the sword and reluctantly gives you the item for free");
+    public void buyItem(Hunter customer, String item) {
+        buyItem(customer, item, checkMarketPrice(item, true));
+    }
+
+    private void buyItem(Hunter customer, String item, int costOfItem) {
+        NewsFeed news = treasureHunter.getNews();
+        int id = ItemCatalog.idOf(item);
+        boolean fromStock = stock != null && id >= 0 && !customer.hasItemInKit(id);
+        if (fromStock && !stock.take(id)) {
+            news.post(NewsFeed.SOLD_OUT, id, costOfItem);
+            treasureHunter.getListener().itemBought(id, costOfItem, false);
+            return;
+        }
+        int goldBefore = customer.getGold();
+        boolean bought;
+        if (customer.hasSword()) {
+            bought = customer.buyItem(item, costOfItem);
+            news.post(NewsFeed.GIVEN_FOR_SWORD, id, 0);
         } else {
-            if (customer.buyItem(item, costOfItem)) {
-                System.out.println("Ye' got yerself a " + item + ". Come again soon.");
+            bought = customer.buyItem(item, costOfItem);
+            if (bought) {
+                news.post(NewsFeed.BOUGHT, id, costOfItem);
             } else {
-                System.out.println("Hmm, either you don't have enough gold or you've already got one of those!");
+                news.post(NewsFeed.BUY_FAILED, id, costOfItem);
             }
         }
+        if (fromStock && !bought) {
+            stock.putBack(id);
+        }
+        if (bought) {
+            // the sword, and anything for a hunter who has it, costs nothing
+            costOfItem = goldBefore - customer.getGold();
+        }
+        treasureHunter.getListener().itemBought(id, costOfItem, bought);
     }
 
     /**
-     * A pathway method that lets the Hunter sell an item.
+     * A pathway method that lets the Hunter sell an item; an item with limited stock goes back on the shelf.
      *
+     * @param customer The Hunter selling.
      * @param item The item being sold.
      */
-    public void sellItem(String item) {
-        int buyBackPrice = checkMarketPrice(item, false);
-        if (customer.sellItem(item, buyBackPrice)) {
-            System.out.println("Pleasure doin' business with you.");
+    public void sellItem(Hunter customer, String item) {
+        sellItem(customer, item, checkMarketPrice(item, false));
+    }
+
+    private void sellItem(Hunter customer, String item, int buyBackPrice) {
+        NewsFeed news = treasureHunter.getNews();
+        boolean sold = customer.sellItem(item, buyBackPrice);
+        if (sold) {
+            if (stock != null) {
+                stock.putBack(ItemCatalog.idOf(item));
+            }
+            news.post(NewsFeed.SOLD, ItemCatalog.idOf(item), buyBackPrice);
         } else {
-            System.out.println("Stop stringin' me along!");
+            news.post(NewsFeed.SELL_FAILED, ItemCatalog.idOf(item), buyBackPrice);
         }
+        treasureHunter.getListener().itemSold(ItemCatalog.idOf(item), buyBackPrice, sold);
     }
 
     /**
@@ -150,41 +229,42 @@ public class Shop {
     }
 
     /**
-     * Checks the item entered against the costs listed in the static variables.
+     * Looks up the cost of the item entered in the ItemCatalog.
      *
      * @param item The item being checked for cost.
      * @return The cost of the item or 0 if the item is not found.
      */
     public int getCostOfItem(String item) {
-        if (item.equals("water")) {
-            return WATER_COST;
-        } else if (item.equals("rope")) {
-            return ROPE_COST;
-        } else if (item.equals("machete")) {
-            return MACHETE_COST;
-        } else if (item.equals("horse")) {
-            return HORSE_COST;
-        } else if (item.equals("boat")) {
-            return BOAT_COST;
-        } else if (item.equals("boot")) {
-            return BOOT_COST;
-        } else if (item.equals("shovel")) {
-            return SHOVEL_COST;
-        } else if (item.equals("sword")) {
-            return SWORD_COST;
-        } else {
+        int id = ItemCatalog.idOf(item);
+        if (id < 0) {
             return 0;
         }
+        int cost;
+        if (buyPrices == null) {
+            cost = ItemCatalog.priceOf(id);
+        } else {
+            cost = buyPrices[id];
+        }
+        if (marketPrices == null) {
+            return cost;
+        }
+        return marketPrices.price(id, cost);
     }
 
     /**
-     * Checks the cost of an item and applies the markdown.
+     * Looks up the sell price of an item at this shop's markdown.
      *
      * @param item The item being sold.
-     * @return The sell price of the item.
+     * @return The sell price of the item, or 0 if the item is not found.
      */
     public int getBuyBackCost(String item) {
-        int cost = (int) (getCostOfItem(item) * markdown);
-        return cost;
+        int id = ItemCatalog.idOf(item);
+        if (id < 0) {
+            return 0;
+        }
+        if (marketPrices == null) {
+            return sellPrices[id];
+        }
+        return marketPrices.price(id, sellPrices[id]);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A ShopStock counts how many of each item a shop has left, for a shop that many hunters share at once.<p>
+ * Each item's stock is split across a few stripes, and each stripe is a counter on a cache line of its own
+ * that is only ever changed by compare-and-set, never under a lock. A hunter takes from the stripe picked by
+ * its thread first and only moves on to the others when that one is empty, so hunters on different cores
+ * mostly change different counters. An item is only taken from a stripe that has one, and every item sold
+ * back or returned goes back on a stripe, so none is ever lost or counted twice however many hunters race.
+ */
+
+public class ShopStock {
+    // constants
+    private static final int PADDING = 16;
+    private static final int MAX_STRIPES = 16;
+
+    // instance variables
+    private int stripes;
+    private AtomicIntegerArray counts;
+
+    /**
+     * Stocks every item in the ItemCatalog.
+     *
+     * @param perItem How many of each item the shop starts with.
+     */
+    public ShopStock(int perItem) {
+        if (perItem < 0) {
+            throw new IllegalArgumentException("A shop can't stock fewer than 0 of an item");
+        }
+        stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+        counts = new AtomicIntegerArray(ItemCatalog.size() * stripes * PADDING);
+        for (int id = 0; id < ItemCatalog.size(); id++) {
+            for (int s = 0; s < stripes; s++) {
+                // deal the items out across the stripes, the first stripes getting any left over
+                counts.set(slot(id, s), perItem / stripes + (s < perItem % stripes ? 1 : 0));
+            }
+        }
+    }
+
+    /**
+     * Takes one of an item off the shelf.
+     *
+     * @param id The item's ItemCatalog id.
+     * @return true if one was taken, false if the shop has none left.
+     */
+    public boolean take(int id) {
+        int home = homeStripe();
+        for (int i = 0; i < stripes; i++) {
+            int slot = slot(id, (home + i) & (stripes - 1));
+            int count = counts.get(slot);
+            while (count > 0) {
+                if (counts.compareAndSet(slot, count, count - 1)) {
+                    return true;
+                }
+                count = counts.get(slot);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Puts one of an item back on the shelf, when a hunter sells one or a sale falls through.
+     *
+     * @param id The item's ItemCatalog id.
+     */
+    public void putBack(int id) {
+        counts.incrementAndGet(slot(id, homeStripe()));
+    }
+
+    /**
+     * Counts how many of an item are left. While hunters are trading the count may be a moment out of date.
+     *
+     * @param id The item's ItemCatalog id.
+     * @return How many are left.
+     */
+    public int count(int id) {
+        int total = 0;
+        for (int s = 0; s < stripes; s++) {
+            total += counts.get(slot(id, s));
+        }
+        return total;
+    }
+
+    private int slot(int id, int stripe) {
+        return (id * stripes + stripe) * PADDING;
+    }
+
+    private int homeStripe() {
+        long h = Thread.currentThread().threadId() * 0x9e3779b97f4a7c15L;
+        return (int) (h >>> 32) & (stripes - 1);
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.PrintStream;
+import java.util.stream.LongStream;
+
+/**
+ * The Simulation class plays complete games of Treasure Hunter without a console.<p>
+ * Moves come from a GamePolicy and all game output is thrown away, so games can be
+ * spread over every core with a parallel stream and run as fast as the CPU allows.
+ */
+
+public class Simulation {
+    // constants
+    public static final int MAX_TURNS = 500;
+    private static final PrintStream NO_OUTPUT = new PrintStream(PrintStream.nullOutputStream());
+
+    // instance variables
+    private GamePolicy policy;
+    private long seed;
+    private GameMetrics metrics;
+    private BalanceSettings balance;
+    private Leaderboard leaderboard;
+
+    /**
+     * @param policy The policy that picks every move in every game.
+     * @param seed The seed for the first game; game i is seeded with seed + i, so any game can be replayed.
+     */
+    public Simulation(GamePolicy policy, long seed) {
+        this.policy = policy;
+        this.seed = seed;
+    }
+
+    /**
+     * Records timings and gold flows of every game played from now on.
+     *
+     * @param gameMetrics The metrics shared by all the games.
+     */
+    public void setMetrics(GameMetrics gameMetrics) {
+        metrics = gameMetrics;
+    }
+
+    /**
+     * Records every game finished from now on.
+     *
+     * @param results The leaderboard shared by all the games.
+     */
+    public void setLeaderboard(Leaderboard results) {
+        leaderboard = results;
+    }
+
+    /**
+     * Plays every game from now on with these tuning constants instead of the difficulty's.
+     *
+     * @param balanceSettings The constants, or null for the difficulty's own.
+     */
+    public void setBalance(BalanceSettings balanceSettings) {
+        balance = balanceSettings;
+    }
+
+    /**
+     * Plays one whole game and adds the result to the stats.
+     *
+     * @param difficulty The difficulty code, as typed at the start of a console game.
+     * @param gameSeed The seed for the game's random generator.
+     * @param stats Where the result is recorded.
+     */
+    public void playGame(String difficulty, long gameSeed, SimulationStats stats) {
+        TreasureHunter game = new TreasureHunter(null, NO_OUTPUT, gameSeed);
+        if (metrics != null) {
+            game.setMetrics(metrics);
+        }
+        if (leaderboard != null) {
+            game.addListener(leaderboard);
+        }
+        game.setBalance(balance);
+        game.setUpHunter("hunter", difficulty);
+        game.enterTown();
+        Hunter hunter = game.getHunter();
+        int turns = 0;
+        while (!game.gameWon() && !hunter.gameOver() && turns < MAX_TURNS) {
+            String choice = policy.chooseAction(game);
+            if (choice.equals("b") || choice.equals("s")) {
+                game.trade(choice, policy.chooseItem(game, choice.equals("b")));
+            } else {
+                game.processChoice(choice);
+            }
+            turns++;
+            if (choice.equals("x")) {
+                break;
+            }
+        }
+        stats.record(game.gameWon(), hunter.gameOver(), turns, hunter.getGold());
+    }
+
+    /**
+     * Plays many games at one difficulty using all available cores.
+     *
+     * @param difficulty The difficulty code.
+     * @param games How many games to play.
+     * @return The merged results.
+     */
+    public SimulationStats run(String difficulty, long games) {
+        return LongStream.range(0, games)
+                .parallel()
+                .collect(SimulationStats::new, (stats, i) -> playGame(difficulty, seed + i, stats), SimulationStats::merge);
+    }
+
+    /**
+     * Runs the simulation for each difficulty and prints a report.
+     *
+     * @param games How many games to play per difficulty.
+     * @param out Where the report is printed.
+     */
+    public void report(long games, PrintStream out) {
+        String[] difficulties = {"e", "n", "h", "s"};
+        for (String difficulty : difficulties) {
+            long start = System.nanoTime();
+            SimulationStats stats = run(difficulty, games);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            out.println("=== difficulty " + difficulty + " ===");
+            out.println(stats.infoString());
+            out.printf("%.0f games/sec%n%n", games / seconds);
+        }
+    }
+}
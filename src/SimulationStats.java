@@ -0,0 +1,169 @@
+/**
+ * Collects the results of many headless games played at the same difficulty.<p>
+ * Each worker thread fills its own SimulationStats and they are merged at the end,
+ * so nothing here needs to be thread safe.
+ */
+
+public class SimulationStats {
+    // constants
+    public static final int GOLD_BUCKET_SIZE = 10;
+    public static final int GOLD_BUCKETS = 21;
+    public static final int TURN_BUCKETS = 256;
+
+    // instance variables
+    private long games;
+    private long wins;
+    private long losses;
+    private long totalTurnsToWin;
+    private long totalFinalGold;
+    private long[] turnsToWin;
+    private long[] finalGold;
+
+    public SimulationStats() {
+        turnsToWin = new long[TURN_BUCKETS];
+        finalGold = new long[GOLD_BUCKETS];
+    }
+
+    /**
+     * Records one finished game.
+     *
+     * @param won true if the hunter found all the treasures.
+     * @param lost true if the hunter ran out of gold.
+     * @param turns How many menu choices the game took.
+     * @param gold The hunter's gold when the game ended.
+     */
+    public void record(boolean won, boolean lost, int turns, int gold) {
+        games++;
+        if (won) {
+            wins++;
+            totalTurnsToWin += turns;
+            turnsToWin[Math.min(turns, TURN_BUCKETS - 1)]++;
+        } else if (lost) {
+            losses++;
+        }
+        totalFinalGold += gold;
+        int bucket = Math.max(0, gold) / GOLD_BUCKET_SIZE;
+        finalGold[Math.min(bucket, GOLD_BUCKETS - 1)]++;
+    }
+
+    /**
+     * Adds another set of results into this one.
+     *
+     * @param other The results to merge in.
+     */
+    public void merge(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        losses += other.losses;
+        totalTurnsToWin += other.totalTurnsToWin;
+        totalFinalGold += other.totalFinalGold;
+        for (int i = 0; i < TURN_BUCKETS; i++) {
+            turnsToWin[i] += other.turnsToWin[i];
+        }
+        for (int i = 0; i < GOLD_BUCKETS; i++) {
+            finalGold[i] += other.finalGold[i];
+        }
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getLosses() {
+        return losses;
+    }
+
+    public double getWinRate() {
+        if (games == 0) {
+            return 0;
+        }
+        return (double) wins / games;
+    }
+
+    /**
+     * Finds how far the true win rate could be from the measured one, using the Wilson score interval,
+     * which stays sensible even when almost every game is won or lost.
+     *
+     * @param z How many standard deviations wide the interval is, such as 1.96 for 95% confidence.
+     * @return Half the width of the interval, or 1 if no games have been played.
+     */
+    public double winRateHalfWidth(double z) {
+        if (games == 0) {
+            return 1;
+        }
+        double p = getWinRate();
+        double z2 = z * z;
+        return z / (1 + z2 / games) * Math.sqrt(p * (1 - p) / games + z2 / (4.0 * games * games));
+    }
+
+    /**
+     * @param z How many standard deviations wide the interval is.
+     * @return The middle of the Wilson score interval, which is pulled slightly towards one half.
+     */
+    public double winRateCenter(double z) {
+        if (games == 0) {
+            return 0.5;
+        }
+        double z2 = z * z;
+        return (getWinRate() + z2 / (2.0 * games)) / (1 + z2 / games);
+    }
+
+    public double getAverageTurnsToWin() {
+        if (wins == 0) {
+            return 0;
+        }
+        return (double) totalTurnsToWin / wins;
+    }
+
+    public double getAverageFinalGold() {
+        if (games == 0) {
+            return 0;
+        }
+        return (double) totalFinalGold / games;
+    }
+
+    /**
+     * Finds the number of turns that the given fraction of winning games finished within.
+     *
+     * @param fraction A value between 0 and 1, such as 0.5 for the median.
+     * @return The turn count, or 0 if no games were won.
+     */
+    public int turnsToWinPercentile(double fraction) {
+        long target = (long) Math.ceil(wins * fraction);
+        long seen = 0;
+        for (int i = 0; i < TURN_BUCKETS; i++) {
+            seen += turnsToWin[i];
+            if (seen >= target && seen > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return A printable report of the results.
+     */
+    public String infoString() {
+        String str = "games: " + games + ", wins: " + wins + ", losses: " + losses;
+        str += String.format(", win rate: %.2f%%", getWinRate() * 100);
+        str += String.format("\nturns to win: avg %.1f, p50 %d, p90 %d, p99 %d",
+                getAverageTurnsToWin(), turnsToWinPercentile(0.5), turnsToWinPercentile(0.9), turnsToWinPercentile(0.99));
+        str += String.format("\nfinal gold: avg %.1f", getAverageFinalGold());
+        for (int i = 0; i < GOLD_BUCKETS; i++) {
+            if (finalGold[i] > 0) {
+                String label;
+                if (i == GOLD_BUCKETS - 1) {
+                    label = (i * GOLD_BUCKET_SIZE) + "+";
+                } else {
+                    label = (i * GOLD_BUCKET_SIZE) + "-" + ((i + 1) * GOLD_BUCKET_SIZE - 1);
+                }
+                str += String.format("\n  %8s: %5.2f%%", label, 100.0 * finalGold[i] / games);
+            }
+        }
+        return str;
+    }
+}
@@ -0,0 +1,156 @@
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * The StatusRenderer draws the news, the hunter's status and the menu that are shown before every move.<p>
+ * Everything is written into one StringBuilder that is reused from turn to turn, the menu text and the
+ * color codes are built once, and the whole block is encoded into a reusable byte buffer and written to
+ * the output in one go, instead of a dozen println calls building new Strings each turn.<p>
+ * The news is rendered with '\n' between its lines; those are turned into the platform's line separator as the
+ * block is drawn, so every line of the block ends the same way.<p>
+ * In plain text mode the color codes are left out.
+ */
+
+public class StatusRenderer {
+    // constants
+    private static final String NEWLINE = System.lineSeparator();
+    private static final String MENU = "(B)uy something at the shop." + NEWLINE
+            + "(S)ell something at the shop." + NEWLINE
+            + "(E)xplore surrounding terrain." + NEWLINE
+            + "(M)ove on to a different town." + NEWLINE
+            + "(L)ook for trouble!" + NEWLINE
+            + "(D)ig for gold!" + NEWLINE
+            + "(H)unt for treasure" + NEWLINE
+            + "Give up the hunt and e(X)it." + NEWLINE
+            + NEWLINE
+            + "What's your next move? ";
+    private static final int BYTE_BUFFER_SIZE = 4096;
+
+    // instance variables
+    private StringBuilder buffer;
+    private char[] chars;
+    private CharBuffer charView;
+    private ByteBuffer bytes;
+    private CharsetEncoder encoder;
+    private String yellow;
+    private String purple;
+    private String cyan;
+    private String reset;
+    private boolean plainText;
+
+    /**
+     * @param plainText true to leave out the ANSI color codes.
+     */
+    public StatusRenderer(boolean plainText) {
+        buffer = new StringBuilder(1024);
+        chars = new char[1024];
+        charView = CharBuffer.wrap(chars);
+        bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        this.plainText = plainText;
+        if (plainText) {
+            yellow = "";
+            purple = "";
+            cyan = "";
+            reset = "";
+        } else {
+            yellow = Colors.YELLOW;
+            purple = Colors.PURPLE;
+            cyan = Colors.CYAN;
+            reset = Colors.RESET;
+        }
+    }
+
+    /**
+     * Draws the status block and menu prompt for the game's current turn and writes it out.
+     *
+     * @param game The game being played.
+     * @param out Where the block is written.
+     */
+    public void render(TreasureHunter game, PrintStream out) {
+        Hunter hunter = game.getHunter();
+        Town town = game.getCurrentTown();
+        StringBuilder sb = buffer;
+        sb.setLength(0);
+
+        sb.append(NEWLINE);
+        int newsStart = sb.length();
+        game.getNews().appendLatest(sb, plainText);
+        separateLines(sb, newsStart);
+        sb.append(NEWLINE);
+        sb.append("***").append(NEWLINE);
+
+        sb.append(hunter.getHunterName()).append(" has ").append(yellow).append(hunter.getGold()).append(" gold").append(reset);
+        long items = hunter.getKit();
+        if (items != 0) {
+            sb.append(" and ");
+            while (items != 0) {
+                int id = Long.numberOfTrailingZeros(items);
+                sb.append(purple).append(ItemCatalog.nameOf(id)).append(reset).append(' ');
+                items &= items - 1;
+            }
+        }
+        sb.append(NEWLINE).append("Treasures Found: ");
+        long treasures = game.getTreasuresFound();
+        while (treasures != 0) {
+            sb.append(TreasureCatalog.nameOf(Long.numberOfTrailingZeros(treasures))).append(' ');
+            treasures &= treasures - 1;
+        }
+        sb.append(NEWLINE);
+
+        sb.append("This nice little town is surrounded by ").append(cyan).append(town.getTerrain().getTerrainName()).append(reset).append('.').append(NEWLINE);
+        sb.append(MENU);
+        write(out);
+    }
+
+    /**
+     * Replaces every '\n' from start on with the platform's line separator.
+     */
+    private static void separateLines(StringBuilder sb, int start) {
+        if (NEWLINE.equals("\n")) {
+            return;
+        }
+        for (int i = sb.indexOf("\n", start); i >= 0; i = sb.indexOf("\n", i + NEWLINE.length())) {
+            sb.replace(i, i + 1, NEWLINE);
+        }
+    }
+
+    /**
+     * Encodes the buffer in the stream's charset and writes it without creating a String.
+     */
+    private void write(PrintStream out) {
+        int len = buffer.length();
+        if (len > chars.length) {
+            chars = new char[Math.max(len, chars.length * 2)];
+            charView = CharBuffer.wrap(chars);
+        }
+        buffer.getChars(0, len, chars, 0);
+        charView.clear();
+        charView.limit(len);
+
+        if (encoder == null || !encoder.charset().equals(out.charset())) {
+            encoder = out.charset().newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        encoder.reset();
+        bytes.clear();
+        CoderResult result = encoder.encode(charView, bytes, true);
+        while (result.isOverflow()) {
+            drain(out);
+            result = encoder.encode(charView, bytes, true);
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            drain(out);
+        }
+        drain(out);
+    }
+
+    private void drain(PrintStream out) {
+        out.write(bytes.array(), 0, bytes.position());
+        bytes.clear();
+    }
+}
@@ -1,12 +1,15 @@
 /**
- * The Terrain class is designed to represent the zones between the towns in the Treasure Hunter game.
+ * The Terrain class is designed to represent the zones between the towns in the Treasure Hunter game.<p>
+ * Terrains never change, so every town with the same terrain shares one instance from the TerrainCatalog.
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Terrain {
     // instance variables
+    private int id;
     private String terrainName;
     private String neededItem;
+    private int neededItemId;
 
     /**
      * Sets the class member variables
@@ -15,11 +18,32 @@ public class Terrain {
      * @param item The item needed in order to cross the zone.
      */
     public Terrain(String name, String item) {
+        this(-1, name, item);
+    }
+
+    /**
+     * Builds one of the TerrainCatalog's terrains.
+     *
+     * @param id The terrain's id in the catalog.
+     * @param name The name of the zone.
+     * @param item The item needed in order to cross the zone.
+     */
+    Terrain(int id, String name, String item) {
+        this.id = id;
         terrainName = name;
         neededItem = item.toLowerCase();
+        neededItemId = ItemCatalog.idOf(neededItem);
     }
 
     // accessors
+
+    /**
+     * @return The terrain's id in the TerrainCatalog, or -1 if it isn't one of the catalog's terrains.
+     */
+    public int getId() {
+        return id;
+    }
+
     public String getTerrainName() {
         return terrainName;
     }
@@ -28,6 +52,10 @@ public class Terrain {
         return neededItem;
     }
 
+    public int getNeededItemId() {
+        return neededItemId;
+    }
+
     /**
      * Guards against a hunter crossing the zone without the proper item.
      * Searches the hunter's inventory for the proper item and determines whether the hunter can cross.
@@ -36,7 +64,7 @@ public class Terrain {
      * @return true if the Hunter has the proper item.
      */
     public boolean canCrossTerrain(Hunter hunter) {
-        if (hunter.hasItemInKit(neededItem)) {
+        if (neededItemId >= 0 && hunter.hasItemInKit(neededItemId)) {
             return true;
         }
         return false;
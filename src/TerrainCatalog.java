@@ -0,0 +1,196 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+
+/**
+ * The TerrainCatalog lists every terrain that can surround a town, with the item needed to cross it and how often it comes up.<p>
+ * The terrains are read once from terrains.txt (or the file named by the treasurehunter.terrains system property)
+ * and each one is a single shared Terrain, so building a town allocates nothing for its terrain.<p>
+ * A terrain is picked with the alias method: the weights are spread over one column per terrain, each column
+ * split between its own terrain and one other, so a pick is a single random number and one comparison however
+ * many terrains there are.
+ */
+
+public class TerrainCatalog {
+    // constants
+    public static final String CONFIG_PROPERTY = "treasurehunter.terrains";
+
+    // static variables
+    private static Terrain[] terrains;
+    private static double[] chances;
+    private static double[] keep;
+    private static int[] alias;
+    private static final HashMap<String, Terrain> BY_NAME = new HashMap<>();
+
+    static {
+        load();
+    }
+
+    /**
+     * @return How many different terrains there are.
+     */
+    public static int size() {
+        return terrains.length;
+    }
+
+    /**
+     * @param id A terrain id.
+     * @return The shared terrain.
+     */
+    public static Terrain get(int id) {
+        return terrains[id];
+    }
+
+    /**
+     * Looks up a terrain by name, such as one read back from a journal.
+     *
+     * @param name The terrain's name.
+     * @return The shared terrain, or null if there is no such terrain.
+     */
+    public static Terrain named(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * @param id A terrain id.
+     * @return The chance that a new town has this terrain.
+     */
+    public static double chanceOf(int id) {
+        return chances[id];
+    }
+
+    /**
+     * Picks a terrain for a new town.
+     *
+     * @param random The random generator used to build the town.
+     * @return The shared terrain.
+     */
+    public static Terrain sample(SplittableRandom random) {
+        return terrains[idAt(random.nextDouble())];
+    }
+
+    /**
+     * Turns a random number into a terrain id: the whole part of roll * size() picks a column and the
+     * fraction left over picks between the column's own terrain and its alias.
+     *
+     * @param roll A random number from 0 up to but not including 1.
+     * @return The terrain id.
+     */
+    public static int idAt(double roll) {
+        double scaled = roll * terrains.length;
+        int column = (int) scaled;
+        if (scaled - column < keep[column]) {
+            return column;
+        }
+        return alias[column];
+    }
+
+    /**
+     * Reads the terrain file and builds the alias table.
+     */
+    private static void load() {
+        ArrayList<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(openConfig())) {
+            String line = reader.readLine();
+            while (line != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    String[] fields = line.split("\\s*,\\s*");
+                    if (fields.length < 3) {
+                        throw new IllegalStateException("Bad line in terrain file: " + line);
+                    }
+                    rows.add(fields);
+                }
+                line = reader.readLine();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read the terrain file", e);
+        }
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("The terrain file lists no terrains");
+        }
+
+        int n = rows.size();
+        terrains = new Terrain[n];
+        chances = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            String[] fields = rows.get(i);
+            terrains[i] = new Terrain(i, fields[0], fields[1]);
+            if (terrains[i].getNeededItemId() < 0) {
+                throw new IllegalStateException("No such item to cross " + fields[0] + ": " + fields[1]);
+            }
+            chances[i] = Double.parseDouble(fields[2]);
+            if (!(chances[i] > 0)) {
+                throw new IllegalStateException("Terrain weights must be more than 0: " + fields[0]);
+            }
+            total += chances[i];
+            BY_NAME.put(terrains[i].getTerrainName(), terrains[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            chances[i] /= total;
+        }
+        buildAliasTable();
+    }
+
+    /**
+     * Builds the alias table with Vose's method: columns with less than their share are topped up from ones with more.
+     */
+    private static void buildAliasTable() {
+        int n = chances.length;
+        keep = new double[n];
+        alias = new int[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        double[] scaled = new double[n];
+        for (int i = 0; i < n; i++) {
+            scaled[i] = chances[i] * n;
+            alias[i] = i;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            keep[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] -= 1 - scaled[less];
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // whatever is left is a full column, give or take rounding
+        while (largeCount > 0) {
+            keep[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            keep[small[--smallCount]] = 1;
+        }
+    }
+
+    private static Reader openConfig() throws IOException {
+        String path = System.getProperty(CONFIG_PROPERTY);
+        if (path != null) {
+            return new FileReader(path, StandardCharsets.UTF_8);
+        }
+        InputStream in = TerrainCatalog.class.getResourceAsStream("/terrains.txt");
+        if (in == null) {
+            throw new IOException("terrains.txt is not on the classpath");
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+}
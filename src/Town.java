@@ -1,6 +1,9 @@
+import java.util.SplittableRandom;
+
 /**
  * The Town Class is where it all happens.
  * The Town is designed to manage all the things a Hunter can do in town.
+ * What happens is posted to the game's NewsFeed as events, and only becomes text when the news is shown.
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
@@ -9,38 +12,107 @@ public class Town {
     private Hunter hunter;
     private Shop shop;
     private Terrain terrain;
-    private String printMessage;
     private boolean toughTown;
     private boolean dugGoldAlready;
+    private String treasure;
+    private World world;
+    private int townId;
     private TreasureHunter th;
 
-    public TreasureHunter treasureHunter = new TreasureHunter();
     /**
-     * The Town Constructor takes in a shop and the surrounding terrain, but leaves the hunter as null until one arrives.
+     * The Town Constructor takes in a shop and the surrounding terrain, but leaves the hunter as null until one arrives.<p>
+     * The terrain and toughness are rolled with the town's own random generator, so the same generator seed
+     * always builds the same town.
      *
      * @param shop The town's shoppe.
      * @param toughness The surrounding terrain.
+     * @param treasure The treasure hidden in the town.
+     * @param townRandom The random generator used to build the town.
      */
-    public Town(Shop shop, double toughness, TreasureHunter th) {
+    public Town(Shop shop, double toughness, String treasure, SplittableRandom townRandom, TreasureHunter th) {
         this.shop = shop;
-        this.terrain = getNewTerrain();
         this.th = th;
+        this.treasure = treasure;
+        this.terrain = getNewTerrain(townRandom);
 
         // the hunter gets set using the hunterArrives method, which
         // gets called from a client class
         hunter = null;
-        printMessage = "";
 
         // higher toughness = more likely to be a tough town
-        toughTown = (Math.random() < toughness);
+        toughTown = (townRandom.nextDouble() < toughness);
+    }
+
+    /**
+     * Builds a town whose terrain and toughness are already decided, such as one replayed from a journal.
+     *
+     * @param shop The town's shoppe.
+     * @param terrain The surrounding terrain.
+     * @param toughTown Whether the town is a tough one.
+     * @param treasure The treasure hidden in the town.
+     */
+    Town(Shop shop, Terrain terrain, boolean toughTown, String treasure, TreasureHunter th) {
+        this.shop = shop;
+        this.th = th;
+        this.treasure = treasure;
+        this.terrain = terrain;
+        this.toughTown = toughTown;
+        hunter = null;
     }
 
     public Terrain getTerrain() {
         return terrain;
     }
 
+    /**
+     * @return The latest news from the game's NewsFeed, rendered with colors.
+     */
     public String getLatestNews() {
-        return printMessage;
+        return th.getNews().getLatestNews();
+    }
+
+    public Shop getShop() {
+        return shop;
+    }
+
+    public boolean hasDugGold() {
+        return dugGoldAlready;
+    }
+
+    public boolean isToughTown() {
+        return toughTown;
+    }
+
+    public String getTreasure() {
+        return treasure;
+    }
+
+    /**
+     * Records whether the town has been dug, in the World too if the town is part of one.
+     *
+     * @param dugGold true if the town has been dug.
+     */
+    void setDugGold(boolean dugGold) {
+        dugGoldAlready = dugGold;
+        if (world != null) {
+            world.setDug(townId, dugGold);
+        }
+    }
+
+    /**
+     * Makes the town the given town of a World, picking up whether the hunter has already dug there.
+     *
+     * @param townWorld The world.
+     * @param id The town's number in the world.
+     */
+    void joinWorld(World townWorld, int id) {
+        world = townWorld;
+        townId = id;
+        dugGoldAlready = townWorld.hasDug(id);
+    }
+
+    void setLatestNews(String news) {
+        th.getNews().postText(news);
     }
 
     /**
@@ -50,14 +122,24 @@ public class Town {
      */
     public void hunterArrives(Hunter hunter) {
         this.hunter = hunter;
-        printMessage = "Welcome to town, " + hunter.getHunterName() + ".";
+        NewsFeed news = th.getNews();
+        news.startStory();
         if (toughTown) {
-            printMessage += "\nIt's pretty rough around here, so watch yourself.";
+            news.post(NewsFeed.ARRIVED, -1, 1);
         } else {
-            printMessage += "\nWe're just a sleepy little town with mild mannered folk.";
+            news.post(NewsFeed.ARRIVED, -1, 0);
         }
     }
 
+    /**
+     * Puts the Hunter back in town without arriving, such as when a game is restored from a snapshot.
+     *
+     * @param hunter The returning Hunter.
+     */
+    void hunterReturns(Hunter hunter) {
+        this.hunter = hunter;
+    }
+
     /**
      * Handles the action of the Hunter leaving the town.
      *
@@ -65,18 +147,27 @@ public class Town {
      */
     public boolean leaveTown() {
         boolean canLeaveTown = terrain.canCrossTerrain(hunter);
+        NewsFeed news = th.getNews();
+        news.startStory();
         if (canLeaveTown) {
-            String item = terrain.getNeededItem();
-            printMessage = "You used your " + item + " to cross the " + terrain.getTerrainName() + ".";
-            if (checkItemBreak()) {
-                hunter.removeItemFromKit(item);
-                printMessage += "\nUnfortunately, you lost your " + item;
-                dugGoldAlready = false;
+            news.post(NewsFeed.CROSSED, terrain);
+            boolean itemBroke = checkItemBreak();
+            if (itemBroke) {
+                int brokenId = terrain.getNeededItemId();
+                hunter.removeItemFromKit(brokenId);
+                // in a shared world the shop takes the broken item in and mends it, so stock isn't lost for good
+                if (shop.getStock() != null) {
+                    shop.getStock().putBack(brokenId);
+                }
+                news.post(NewsFeed.ITEM_LOST, terrain);
+                setDugGold(false);
             }
+            th.getListener().leftTown(true, itemBroke);
             return true;
         }
 
-        printMessage = "You can't leave town, " + hunter.getHunterName() + ". You don't have a " + terrain.getNeededItem() + ".";
+        news.post(NewsFeed.CANT_LEAVE, terrain);
+        th.getListener().leftTown(false, false);
         return false;
     }
 
@@ -86,7 +177,19 @@ public class Town {
      * @param choice If the user wants to buy or sell items at the shop.
      */
     public void enterShop(String choice) {
-        printMessage = shop.enter(hunter, choice);
+        th.getNews().startStory();
+        shop.enter(hunter, choice);
+    }
+
+    /**
+     * Buys or sells the given item at the shop without asking the user anything.
+     *
+     * @param choice If the user wants to buy or sell items at the shop.
+     * @param item The item to buy or sell.
+     */
+    public void enterShop(String choice, String item) {
+        th.getNews().startStory();
+        shop.enter(hunter, choice, item);
     }
 
     /**
@@ -101,46 +204,53 @@ public class Town {
         } else {
             noTroubleChance = 0.66;
         }
-        if (Math.random() > noTroubleChance) {
-            printMessage = "You couldn't find any trouble";
+        NewsFeed news = th.getNews();
+        news.startStory();
+        if (th.getRandom().nextDouble() > noTroubleChance) {
+            news.post(NewsFeed.NO_TROUBLE, -1, 0);
+            th.getListener().brawled(GameListener.BRAWL_NONE, 0);
         } else {
-            if (!hunter.hasItemInKit("sword")) {
-                int goldDiff = (int) (Math.random() * 10) + 1;
-                printMessage = Colors.RED + "You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n";
-                if (Math.random() > noTroubleChance) {
-                    printMessage += "Okay, stranger! You proved yer mettle. Here, take my gold.";
-                    printMessage += Colors.YELLOW + "\nYou won the brawl and receive " + goldDiff + " gold." + Colors.RESET;
+            if (!hunter.hasItemInKit(ItemCatalog.SWORD)) {
+                int goldDiff = th.getRandom().nextInt(10) + 1;
+                if (th.getRandom().nextDouble() > noTroubleChance) {
+                    news.post(NewsFeed.BRAWL_WON, -1, goldDiff);
                     hunter.changeGold(goldDiff);
+                    th.getListener().brawled(GameListener.BRAWL_WON, goldDiff);
                 } else {
-                    printMessage += "That'll teach you to go lookin' fer trouble in MY town! Now pay up!";
-                    printMessage += "\nYou lost the brawl and pay " + Colors.YELLOW + goldDiff + " gold." + Colors.RESET;
+                    news.post(NewsFeed.BRAWL_LOST, -1, goldDiff);
                     hunter.changeGold(-goldDiff);
+                    th.getListener().brawled(GameListener.BRAWL_LOST, goldDiff);
                 }
             } else {
-                int goldDiff = (int) (Math.random() * 10) + 1;
-                printMessage = Colors.RED + "You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n";
-                printMessage += "The brawler, seeing your sword, realizes he picked a losing fight and gives you his gold." + Colors.RESET;
-                printMessage += "\nYou won the brawl and receive " + Colors.YELLOW + goldDiff + Colors.RESET + " gold.";
+                int goldDiff = th.getRandom().nextInt(10) + 1;
+                news.post(NewsFeed.BRAWL_WON_WITH_SWORD, -1, goldDiff);
                 hunter.changeGold(goldDiff);
+                th.getListener().brawled(GameListener.BRAWL_WON, goldDiff);
             }
         }
     }
 
     public void digGold() {
-        if (!hunter.hasItemInKit("shovel")) {
-            System.out.println("You can't dig for gold without a shovel");
+        NewsFeed news = th.getNews();
+        news.startStory();
+        if (!hunter.hasItemInKit(ItemCatalog.SHOVEL)) {
+            news.post(NewsFeed.DIG_NO_SHOVEL, -1, 0);
+            th.getListener().dug(GameListener.DIG_NO_SHOVEL, 0);
         } else if (dugGoldAlready) {
-            System.out.println("You already dug for gold in this town.");
+            news.post(NewsFeed.DIG_ALREADY_DUG, -1, 0);
+            th.getListener().dug(GameListener.DIG_ALREADY_DUG, 0);
         } else {
-            double chance = Math.random();
+            double chance = th.getRandom().nextDouble();
             if (chance < .5) {
-                int goldFound = (int) (Math.random() * 20) + 1;
-                System.out.println("You dug up " + goldFound + " gold");
+                int goldFound = th.getRandom().nextInt(20) + 1;
+                news.post(NewsFeed.DUG_GOLD, -1, goldFound);
                 hunter.changeGold(goldFound);
+                th.getListener().dug(GameListener.DIG_GOLD, goldFound);
             } else {
-                System.out.println("You dug but only found dirt");
+                news.post(NewsFeed.DUG_DIRT, -1, 0);
+                th.getListener().dug(GameListener.DIG_DIRT, 0);
             }
-            dugGoldAlready = true;
+            setDugGold(true);
         }
     }
 
@@ -151,23 +261,11 @@ public class Town {
     /**
      * Determines the surrounding terrain for a town, and the item needed in order to cross that terrain.
      *
-     * @return A Terrain object.
+     * @param townRandom The random generator used to build the town.
+     * @return The shared Terrain from the TerrainCatalog.
      */
-    private Terrain getNewTerrain() {
-        double rnd = Math.random();
-        if (rnd < 0.16) {
-            return new Terrain("Mountains", "Rope");
-        } else if (rnd < 0.33) {
-            return new Terrain("Ocean", "Boat");
-        } else if (rnd < 0.5) {
-            return new Terrain("Plains", "Horse");
-        } else if (rnd < 0.66) {
-            return new Terrain("Desert", "Water");
-        } else if (rnd < 0.83) {
-            return new Terrain("Jungle", "Machete");
-        } else {
-            return new Terrain("Marsh", "Boot");
-        }
+    private Terrain getNewTerrain(SplittableRandom townRandom) {
+        return TerrainCatalog.sample(townRandom);
     }
 
     /**
@@ -177,7 +275,7 @@ public class Town {
      */
     private boolean checkItemBreak() {
         if (!th.getEasyMode()) {
-            double rand = Math.random();
+            double rand = th.getRandom().nextDouble();
             return (rand < 0.99);
         } else {
             return false;
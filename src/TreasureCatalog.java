@@ -0,0 +1,162 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The TreasureCatalog lists every treasure a town can hide and gives each one a small id number.<p>
+ * The treasures are read once from treasures.txt (or the file named by the treasurehunter.treasures system property),
+ * and the number a hunter needs to win comes from the treasurehunter.treasuresToWin property, so treasures can be
+ * added or the game made shorter without changing the code.<p>
+ * Like a kit, the treasures a hunter has found are stored as a bitmask with one bit per id, so checking for a
+ * treasure is a single bit operation and counting them never walks an array.
+ */
+
+public class TreasureCatalog {
+    // constants
+    public static final int MAX_TREASURES = Long.SIZE;
+    public static final String CONFIG_PROPERTY = "treasurehunter.treasures";
+    public static final String WIN_PROPERTY = "treasurehunter.treasuresToWin";
+
+    // static variables
+    private static String[] names;
+    private static boolean[] worthless;
+    private static int valuableCount;
+    private static int treasuresToWin;
+    private static final HashMap<String, Integer> IDS = new HashMap<>();
+
+    static {
+        load();
+    }
+
+    /**
+     * Looks up the id of a treasure.
+     *
+     * @param name The treasure's name in lower case.
+     * @return The treasure's id, or -1 if there is no such treasure.
+     */
+    public static int idOf(String name) {
+        Integer id = IDS.get(name);
+        if (id == null) {
+            return -1;
+        }
+        return id;
+    }
+
+    /**
+     * @param id A treasure id.
+     * @return The treasure's name.
+     */
+    public static String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return How many different treasures there are, worthless ones included.
+     */
+    public static int size() {
+        return names.length;
+    }
+
+    /**
+     * @param id A treasure id.
+     * @return The found-treasures bitmask with only this treasure's bit set.
+     */
+    public static long bit(int id) {
+        return 1L << id;
+    }
+
+    /**
+     * @param id A treasure id, or -1.
+     * @return true if finding the treasure doesn't count towards winning, as with dust or an unknown treasure.
+     */
+    public static boolean isWorthless(int id) {
+        return id < 0 || worthless[id];
+    }
+
+    /**
+     * @return How many treasures count towards winning.
+     */
+    public static int valuableCount() {
+        return valuableCount;
+    }
+
+    /**
+     * @return How many different treasures a hunter must find to win.
+     */
+    public static int treasuresToWin() {
+        return treasuresToWin;
+    }
+
+    /**
+     * @param found A found-treasures bitmask.
+     * @param separator What goes between two names.
+     * @return The names of the treasures in the bitmask, in catalog order.
+     */
+    public static String names(long found, String separator) {
+        StringBuilder sb = new StringBuilder();
+        while (found != 0) {
+            if (sb.length() > 0) {
+                sb.append(separator);
+            }
+            sb.append(names[Long.numberOfTrailingZeros(found)]);
+            found &= found - 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads the treasure file and the win count.
+     */
+    private static void load() {
+        ArrayList<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(openConfig())) {
+            String line = reader.readLine();
+            while (line != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    rows.add(line.split("\\s*,\\s*"));
+                }
+                line = reader.readLine();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read the treasure file", e);
+        }
+        if (rows.size() > MAX_TREASURES) {
+            throw new IllegalStateException("There can be at most " + MAX_TREASURES + " different treasures");
+        }
+
+        names = new String[rows.size()];
+        worthless = new boolean[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            String[] fields = rows.get(i);
+            names[i] = fields[0].toLowerCase();
+            worthless[i] = fields.length > 1 && fields[1].equalsIgnoreCase("worthless");
+            IDS.put(names[i], i);
+            if (!worthless[i]) {
+                valuableCount++;
+            }
+        }
+        treasuresToWin = Integer.getInteger(WIN_PROPERTY, valuableCount);
+        if (treasuresToWin < 1 || treasuresToWin > valuableCount) {
+            throw new IllegalStateException("A hunter must need between 1 and " + valuableCount + " treasures to win");
+        }
+    }
+
+    private static Reader openConfig() throws IOException {
+        String path = System.getProperty(CONFIG_PROPERTY);
+        if (path != null) {
+            return new FileReader(path, StandardCharsets.UTF_8);
+        }
+        InputStream in = TreasureCatalog.class.getResourceAsStream("/treasures.txt");
+        if (in == null) {
+            throw new IOException("treasures.txt is not on the classpath");
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+}
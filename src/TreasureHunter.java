@@ -1,5 +1,8 @@
-import java.util.Objects;
-import java.util.Scanner;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
 
 /**
  * This class is responsible for controlling the Treasure Hunter game.<p>
@@ -9,9 +12,11 @@ import java.util.Scanner;
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
-public class TreasureHunter {
-    // static variables
-    private static final Scanner SCANNER = new Scanner(System.in);
+public final class TreasureHunter {
+    // constants
+    public static final int MAX_COMMAND = 128;
+    public static final char NO_COMMAND = 0;
+    private static final CommandHandler[] DEFAULT_COMMANDS = defaultCommands();
 
     // instance variables
     private Town currentTown;
@@ -20,54 +25,176 @@ public class TreasureHunter {
     private boolean easyMode;
     public boolean samuraiMode;
     private String treasure;
-    private String[] treasureFound;
+    private int treasureId;
+    private long treasuresFound;
+    private int treasureCount;
     private boolean searched;
-    int index = 0;
+    private GameInput in;
+    private CommandHandler[] commands;
+    private PrintStream out;
+    private StatusRenderer renderer;
+    private GameListener listener;
+    private GameMetrics metrics;
+    private long inputNanos;
+    private MarketPrices marketPrices;
+    private BalanceSettings balance;
+    private World world;
+    private SharedWorld sharedWorld;
+    private boolean kitReturned;
+    private int townId;
+    private int turns;
+    private boolean ended;
+    private int worldSize;
+    private int townCacheSize;
+    private long seed;
+    private GameRandom random;
+    private NewsFeed news;
 
     /**
-     * Constructs the Treasure Hunter game.
+     * Constructs the Treasure Hunter game played at the console.<p>
+     * Output is buffered and flushed once per turn, when the game waits for the player.
      */
     public TreasureHunter() {
+        this(new GameInput(System.in), new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), false, System.out.charset()));
+    }
+
+    /**
+     * Constructs the Treasure Hunter game reading from and writing to the given streams,
+     * so each session (console, network connection or headless game) has its own.
+     *
+     * @param in Where the player's input is read from; headless games that never read pass null.
+     * @param out Where game messages are printed; headless games pass a stream that discards them.
+     */
+    public TreasureHunter(GameInput in, PrintStream out) {
+        this(in, out, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructs a Treasure Hunter game whose every random roll comes from its own generator,
+     * so the same seed and the same moves always play out the same way.
+     *
+     * @param in Where the player's input is read from; headless games that never read pass null.
+     * @param out Where game messages are printed; headless games pass a stream that discards them.
+     * @param seed The seed for this game's random generator.
+     */
+    public TreasureHunter(GameInput in, PrintStream out, long seed) {
         // these will be initialized in the play method
+        this.in = in;
+        this.out = out;
+        commands = DEFAULT_COMMANDS;
+        renderer = new StatusRenderer(false);
+        listener = GameListener.NONE;
+        worldSize = World.DEFAULT_SIZE;
+        townCacheSize = World.DEFAULT_CACHE_SIZE;
+        this.seed = seed;
+        random = new GameRandom(seed);
+        news = new NewsFeed(this);
         currentTown = null;
         hunter = null;
         hardMode = false;
         easyMode = false;
         samuraiMode = false;
-        treasureFound = new String[3];
+    }
+
+    /**
+     * Restores a game from a snapshot, as it was when the snapshot was taken.<p>
+     * Towns are rebuilt from the world seed when they are visited, just as towns that have dropped out of the
+     * World's cache are, and remember whether they were dug. The new game's dice carry on from where the snapshotted
+     * game's were, so every game restored from one snapshot rolls the same dice as the game would have.
+     * Listeners, metrics and input are not part of a snapshot; add them to the new game as needed.
+     *
+     * @param snapshot The snapshot.
+     * @param in Where the player's input is read from; headless games that never read pass null.
+     * @param out Where game messages are printed; headless games pass a stream that discards them.
+     */
+    public TreasureHunter(GameSnapshot snapshot, GameInput in, PrintStream out) {
+        this(in, out, snapshot.getRandomSeed());
+        restore(snapshot);
+    }
+
+    /**
+     * Restores a game from a snapshot into a game built with the snapshot's random seed, after its shared world
+     * or market has been set; call instead of setting up the hunter.<p>
+     * The hunter is put back in town without arriving again, so no listener hears of it and no news is posted.
+     *
+     * @param snapshot The snapshot.
+     */
+    public void restore(GameSnapshot snapshot) {
+        balance = snapshot.getBalance();
+        setDifficulty(snapshot.getDifficulty());
+        hunter = new Hunter(snapshot.getHunterName(), snapshot.getGold(), snapshot.getKit(), snapshot.hasSword(), this);
+        treasuresFound = snapshot.getTreasuresFound();
+        treasureCount = snapshot.getTreasureCount();
+        searched = snapshot.hasSearched();
+        turns = snapshot.getTurns();
+        ended = snapshot.isEnded();
+        worldSize = snapshot.getWorldSize();
+        townCacheSize = snapshot.getTownCacheSize();
+        world = new World(snapshot.getWorldSeed(), worldSize, townCacheSize, this);
+        world.restoreDugTowns(snapshot.getDugTowns());
+        townId = snapshot.getTownId();
+        findTown();
+        currentTown.hunterReturns(hunter);
+        currentTown.setLatestNews(snapshot.getLatestNews());
     }
 
     /**
      * Starts the game; this is the only public method
      */
     public void play() {
-        welcomePlayer();
-        enterTown();
-        showMenu();
+        try {
+            welcomePlayer();
+            enterTown();
+            showMenu();
+            out.flush();
+        } finally {
+            // however the game finished, even if the player went away part way through
+            returnKit();
+        }
+    }
+
+    /**
+     * Turns the ANSI color codes on or off, for example when the output is piped or logged.<p>
+     * Call before the game starts.
+     *
+     * @param plainText true to print plain text without color codes.
+     */
+    public void setPlainText(boolean plainText) {
+        renderer = new StatusRenderer(plainText);
+        if (plainText) {
+            out = new PrintStream(new AnsiStripOutputStream(out), false, out.charset());
+        }
     }
 
     /**
      * Creates a hunter object at the beginning of the game and populates the class member variable with it.
      */
     private void welcomePlayer() {
-        System.out.println("Welcome to " + Colors.CYAN + "TREASURE HUNTER" + Colors.RESET + "!");
-        System.out.println("Going hunting for the big treasure, eh?");
-        System.out.print("What's your name, Hunter? ");
-        String name = SCANNER.nextLine().toLowerCase();
-        System.out.print("Difficulty ([e]asy, [n]ormal, [h]ard : ");
-        String hard = SCANNER.nextLine().toLowerCase();
+        out.println("Welcome to " + Colors.CYAN + "TREASURE HUNTER" + Colors.RESET + "!");
+        out.println("Going hunting for the big treasure, eh?");
+        out.print("What's your name, Hunter? ");
+        String name = readLine();
+        out.print("Difficulty ([e]asy, [n]ormal, [h]ard : ");
+        String hard = readLine();
+        setUpHunter(name, hard);
+    }
 
+    /**
+     * Creates the hunter and applies the chosen difficulty without any console interaction.
+     *
+     * @param name The hunter's name.
+     * @param hard The difficulty code: "e", "n", "h", "s" or "test".
+     */
+    void setUpHunter(String name, String hard) {
         // set hunter instance variable
         hunter = new Hunter(name, 20, this);
-        if (hard.equals("h")) {
-            hardMode = true;
-        } else if (hard.equals("e")) {
-            easyMode = true;
-            hunter.changeGold(20);
-        } else if (hard.equals("s")) {
-            samuraiMode = true;
+        setDifficulty(hard);
+        if (easyMode || samuraiMode) {
             hunter.changeGold(20);
         }
+        if (balance != null) {
+            hunter.changeGold(balance.getStartingGold() - hunter.getGold());
+        }
 
         if (hard.equals("test")) {
             hunter.changeGold(80);
@@ -76,172 +203,613 @@ public class TreasureHunter {
                 hunter.addItem(itm);
             }
         }
+        listener.gameStarted(this, hard);
+    }
+
+    private void setDifficulty(String hard) {
+        if (hard.equals("h")) {
+            hardMode = true;
+        } else if (hard.equals("e")) {
+            easyMode = true;
+        } else if (hard.equals("s")) {
+            samuraiMode = true;
+        }
+    }
+
+    /**
+     * Takes an immutable snapshot of the game, in constant time.<p>
+     * The snapshot records the random generator's state and shares the World's record of dug towns, so taking one
+     * changes nothing about how this game plays on.
+     *
+     * @return The snapshot.
+     * @throws IllegalStateException if the hunter hasn't entered the world yet.
+     */
+    public GameSnapshot snapshot() {
+        if (world == null) {
+            throw new IllegalStateException("Only a game whose hunter is out in the world can be snapshotted");
+        }
+        // the news is restored as plain text, so it is kept without its colors
+        StringBuilder latestNews = new StringBuilder(128);
+        news.appendLatest(latestNews, true);
+        return new GameSnapshot(hunter.getHunterName(), getDifficulty(), balance, hunter.getGold(), hunter.getKit(),
+                hunter.hasSword(), treasuresFound, treasureCount, searched, turns, ended, world.getSeed(),
+                world.getSize(), townCacheSize, townId, world.shareDugTowns(), latestNews.toString(),
+                random.getSeed());
+    }
+
+    /**
+     * Branches the game: the new game starts where this one is and then goes its own way.
+     *
+     * @param forkOut Where the new game prints its messages.
+     * @return The new game, restored from a snapshot of this one.
+     */
+    public TreasureHunter fork(PrintStream forkOut) {
+        return new TreasureHunter(snapshot(), null, forkOut);
     }
 
     public boolean getSamuraiMode() {
         return samuraiMode;
     }
 
-    public String[] getTreasureFound() {
-        return treasureFound;
+    /**
+     * @return The treasures found so far, as a bitmask with one bit set for each TreasureCatalog id.
+     */
+    public long getTreasuresFound() {
+        return treasuresFound;
+    }
+
+    /**
+     * @return How many different treasures have been found so far.
+     */
+    public int getTreasureCount() {
+        return treasureCount;
     }
 
     public boolean getEasyMode() {
         return easyMode;
     }
 
+    public Hunter getHunter() {
+        return hunter;
+    }
+
+    public Town getCurrentTown() {
+        return currentTown;
+    }
+
+    public boolean hasSearched() {
+        return searched;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
     /**
-     * Creates a new town and adds the Hunter to it.
+     * @return What has happened in town, as typed events; the latest action's events are the latest news.
      */
-    private void enterTown() {
-        String treasures[] = {"crown", "trophy", "gem", "dust"};
-        int idx = (int)(Math.random() * 4);
-        treasure = treasures[idx];
-        double markdown = 0.50;
-        double toughness = 0.4;
-        if (hardMode) {
-            // in hard mode, you get less money back when you sell items
-            markdown = 0.25;
+    public NewsFeed getNews() {
+        return news;
+    }
 
-            // and the town is "tougher"
-            toughness = 0.75;
-        } else if (easyMode) {
-            markdown = 1;
+    /**
+     * @return The random generator owned by this game; it is not shared with any other game.
+     */
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    public PrintStream getOutput() {
+        return out;
+    }
+
+    public GameListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Adds a listener that is told about every action and random outcome in this game.<p>
+     * Add listeners before the game starts so they see the whole game.
+     *
+     * @param newListener The listener to add.
+     */
+    public void addListener(GameListener newListener) {
+        if (listener == GameListener.NONE) {
+            listener = newListener;
+        } else {
+            listener = new MulticastListener(listener, newListener);
+        }
+    }
+
+    /**
+     * Sets the shape of the world of towns; call before the game starts.
+     *
+     * @param size How many towns there are.
+     * @param cacheSize How many built towns are kept in memory.
+     */
+    public void configureWorld(int size, int cacheSize) {
+        worldSize = size;
+        townCacheSize = cacheSize;
+    }
+
+    /**
+     * @return How many menu choices have been made so far.
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getTownId() {
+        return townId;
+    }
+
+    /**
+     * Records this game's action timings and gold flows in the given metrics; call before the game starts.
+     *
+     * @param gameMetrics The metrics, usually shared with other games.
+     */
+    public void setMetrics(GameMetrics gameMetrics) {
+        metrics = gameMetrics;
+        addListener(gameMetrics);
+    }
+
+    /**
+     * Prices this game's shops with the given market, and counts its trades in it; call before the game starts.
+     *
+     * @param prices The market, usually shared with other games.
+     */
+    public void setMarketPrices(MarketPrices prices) {
+        marketPrices = prices;
+        addListener(prices);
+    }
+
+    public MarketPrices getMarketPrices() {
+        return marketPrices;
+    }
+
+    /**
+     * Plays this game in a world shared with other games, whose shops sell from stock shared with theirs;
+     * call before the game starts.
+     *
+     * @param world The shared world, or null for a world of this game's own.
+     */
+    public void setSharedWorld(SharedWorld world) {
+        sharedWorld = world;
+    }
 
-            toughness = 0.35;
+    public SharedWorld getSharedWorld() {
+        return sharedWorld;
+    }
+
+    /**
+     * Puts the hunter's kit back on the shelves of the current town in the shared world, once the game is over
+     * or has been abandoned. Does nothing without a shared world, or if the kit has gone back already.
+     */
+    public void returnKit() {
+        if (sharedWorld != null && hunter != null && world != null && !kitReturned) {
+            kitReturned = true;
+            sharedWorld.returnKit(townId, hunter.getKit());
+        }
+    }
+
+    /**
+     * Plays this game with other tuning constants than its difficulty's; call before the hunter is set up.
+     *
+     * @param balanceSettings The markdown, toughness, starting gold and prices to use, or null for the difficulty's own.
+     */
+    public void setBalance(BalanceSettings balanceSettings) {
+        balance = balanceSettings;
+    }
+
+    public BalanceSettings getBalance() {
+        return balance;
+    }
+
+    public String getDifficulty() {
+        if (hardMode) {
+            return "h";
+        } else if (easyMode) {
+            return "e";
         } else if (samuraiMode) {
-            markdown = 1;
-            toughness = 0;
+            return "s";
         }
+        return "n";
+    }
 
-        // note that we don't need to access the Shop object
-        // outside of this method, so it isn't necessary to store it as an instance
-        // variable; we can leave it as a local variable
-        Shop shop = new Shop(markdown, this);
+    /**
+     * Reads the player's next line of input, flushing any pending prompt first.
+     *
+     * @return The line in lower case.
+     */
+    public String readLine() {
+        long start = System.nanoTime();
+        out.flush();
+        String line = in.readLine();
+        inputNanos += System.nanoTime() - start;
+        return line;
+    }
+
+    /**
+     * Reads the next word of input, such as the item at a shop prompt. A line can hold several answers,
+     * so "rope y" answers both the item and the confirmation; the prompt is only flushed when the game
+     * has to wait for more input.
+     *
+     * @return The word in lower case, or an empty String if the player entered an empty line.
+     */
+    public String readWord() {
+        long start = System.nanoTime();
+        if (!in.hasQueuedToken()) {
+            out.flush();
+        }
+        String word = in.readWord();
+        inputNanos += System.nanoTime() - start;
+        return word;
+    }
 
-        // creating the new Town -- which we need to store as an instance
-        // variable in this class, since we need to access the Town
-        // object in other methods of this class
-        currentTown = new Town(shop, toughness, this);
+    /**
+     * Reads the next menu command. Every letter is a command of its own, so "lmd" looks for trouble, moves
+     * and digs, and "b rope y" buys a rope, with the shop reading "rope" and "y" as its answers.
+     *
+     * @return The command letter, or NO_COMMAND if the player entered an empty line.
+     */
+    char readCommand() {
+        if (!in.hasQueuedToken()) {
+            out.flush();
+        }
+        return in.readCommand();
+    }
+
+    /**
+     * Adds a menu command, or replaces what an existing one does, in this game only.
+     *
+     * @param command The letter that runs the command.
+     * @param handler What the command does.
+     */
+    public void registerCommand(char command, CommandHandler handler) {
+        char key = Character.toLowerCase(command);
+        if (key == NO_COMMAND || key >= MAX_COMMAND) {
+            throw new IllegalArgumentException("Commands must be ASCII letters: " + command);
+        }
+        if (commands == DEFAULT_COMMANDS) {
+            commands = DEFAULT_COMMANDS.clone();
+        }
+        commands[key] = handler;
+    }
+
+    /**
+     * Builds the table of the standard menu commands, shared by every game until one registers its own.
+     */
+    private static CommandHandler[] defaultCommands() {
+        CommandHandler[] table = new CommandHandler[MAX_COMMAND];
+        table['b'] = (game, command) -> game.shop(command);
+        table['s'] = (game, command) -> game.shop(command);
+        table['e'] = (game, command) -> game.explore();
+        table['m'] = (game, command) -> game.move();
+        table['l'] = (game, command) -> game.lookForTrouble();
+        table['d'] = (game, command) -> game.dig();
+        table['h'] = (game, command) -> game.hunt();
+        table['x'] = (game, command) -> game.quit();
+        return table;
+    }
+
+    /**
+     * Takes the Hunter to the current town in the world, building the world the first time.
+     */
+    void enterTown() {
+        if (world == null) {
+            long worldSeed;
+            if (sharedWorld != null) {
+                worldSeed = sharedWorld.getSeed();
+            } else {
+                worldSeed = random.nextLong();
+            }
+            world = new World(worldSeed, worldSize, townCacheSize, this);
+            townId = 0;
+        }
+        findTown();
 
         // calling the hunterArrives method, which takes the Hunter
         // as a parameter; note this also could have been done in the
         // constructor for Town, but this illustrates another way to associate
         // an object with an object of a different class
         currentTown.hunterArrives(hunter);
+        listener.townEntered(currentTown, treasure);
     }
 
-    public boolean alreadyFound(String item) {
-        for (String itm: treasureFound) {
-            if (Objects.equals(item, itm)) {
-                return true;
-            }
+    /**
+     * Makes the town at townId the current town.
+     */
+    private void findTown() {
+        // the town (and its shop) are built the first time they're visited
+        // and kept by the world, so coming back to a town finds it as it was
+        currentTown = world.townAt(townId);
+        treasure = currentTown.getTreasure();
+        treasureId = TreasureCatalog.idOf(treasure);
+    }
+
+    /**
+     * Picks one of the roads out of the current town at random and travels to the town at the end of it.
+     */
+    private void travel() {
+        townId = world.neighbor(townId, random.nextInt(World.NEIGHBORS));
+        enterTown();
+    }
+
+    /**
+     * Enters a town whose terrain, toughness and treasure are already known, such as one read back from a journal.
+     *
+     * @param townTreasure The treasure hidden in the town.
+     * @param terrain The surrounding terrain.
+     * @param toughTown Whether the town is a tough one.
+     */
+    void enterTown(String townTreasure, Terrain terrain, boolean toughTown) {
+        treasure = townTreasure;
+        treasureId = TreasureCatalog.idOf(townTreasure);
+        Shop shop = new Shop(getMarkdown(), this);
+        currentTown = new Town(shop, terrain, toughTown, townTreasure, this);
+        currentTown.hunterArrives(hunter);
+        searched = false;
+        listener.townEntered(currentTown, treasure);
+    }
+
+    /**
+     * @return Percentage of markdown for selling items in this game's difficulty.
+     */
+    double getMarkdown() {
+        if (balance != null) {
+            return balance.getMarkdown();
+        } else if (hardMode) {
+            // in hard mode, you get less money back when you sell items
+            return 0.25;
+        } else if (easyMode || samuraiMode) {
+            return 1;
         }
-        return false;
+        return 0.50;
     }
 
-    public void searchForTreasure() {
-        if (treasure.equals("dust")) {
-            System.out.println("You found " + treasure);
+    /**
+     * @return The chance that a new town is a tough one in this game's difficulty.
+     */
+    double getToughness() {
+        if (balance != null) {
+            return balance.getToughness();
+        } else if (hardMode) {
+            // in hard mode the town is "tougher"
+            return 0.75;
+        } else if (easyMode) {
+            return 0.35;
+        } else if (samuraiMode) {
+            return 0;
         }
-        if (alreadyFound(treasure)){
-            System.out.println("You have already collected a " + treasure);
+        return 0.4;
+    }
+
+    public boolean alreadyFound(String item) {
+        return alreadyFound(TreasureCatalog.idOf(item));
+    }
+
+    private boolean alreadyFound(int id) {
+        return id >= 0 && (treasuresFound & TreasureCatalog.bit(id)) != 0;
+    }
+
+    public void searchForTreasure() {
+        if (TreasureCatalog.isWorthless(treasureId)) {
+            out.println("You found " + treasure);
+            listener.searched(GameListener.SEARCH_DUST, treasure);
+        } else if (alreadyFound(treasureId)) {
+            out.println("You have already collected a " + treasure);
+            listener.searched(GameListener.SEARCH_ALREADY_HAVE, treasure);
+        } else {
+            addTreasure(treasureId);
+            out.println("You found a " + treasure);
+            listener.searched(GameListener.SEARCH_FOUND, treasure);
         }
-        if(!treasure.equals("dust") && !alreadyFound(treasure)) {
-            treasureFound[index] = treasure;
-            index++;
-            System.out.println("You found a " + treasure);
+    }
+
+    /**
+     * Adds a treasure to the ones found so far.
+     *
+     * @param found The treasure.
+     */
+    void addTreasure(String found) {
+        int id = TreasureCatalog.idOf(found);
+        if (!TreasureCatalog.isWorthless(id) && !alreadyFound(id)) {
+            addTreasure(id);
         }
     }
 
+    private void addTreasure(int id) {
+        treasuresFound |= TreasureCatalog.bit(id);
+        treasureCount++;
+    }
+
+    void setSearched(boolean searched) {
+        this.searched = searched;
+    }
+
     /**
      * Displays the menu and receives the choice from the user.<p>
-     * The choice is sent to the processChoice() method for parsing.<p>
+     * Each command letter is sent to processCommand(), several per line if the player typed them together.<p>
      * This method will loop until the user chooses to exit.
      */
     private void showMenu() {
-        String choice = "";
-        while (!choice.equals("x")) {
+        char command = NO_COMMAND;
+        // the news up to here has been shown in a status block
+        long newsShown = news.getSequence();
+        while (command != 'x') {
             if (gameWon()) {
-                System.out.println("You found the last of the three treasures, you win!");
+                printUnseenNews(newsShown);
+                out.println("You found the last of the treasures, you win!");
                 break;
             } else if (hunter.gameOver()) {
-                System.out.println("Game Over!");
-                choice = "x";
-                processChoice(choice);
+                printUnseenNews(newsShown);
+                out.println("Game Over!");
+                command = 'x';
+                processCommand(command);
             } else {
-                System.out.println();
-                System.out.println(currentTown.getLatestNews());
-                System.out.println("***");
-                System.out.println(hunter.infoString());
-                System.out.println(currentTown.infoString());
-                System.out.println("(B)uy something at the shop.");
-                System.out.println("(S)ell something at the shop.");
-                System.out.println("(E)xplore surrounding terrain.");
-                System.out.println("(M)ove on to a different town.");
-                System.out.println("(L)ook for trouble!");
-                System.out.println("(D)ig for gold!");
-                System.out.println("(H)unt for treasure");
-                System.out.println("Give up the hunt and e(X)it.");
-                System.out.println();
-                System.out.print("What's your next move? ");
-                choice = SCANNER.nextLine().toLowerCase();
-                processChoice(choice);
+                renderer.render(this, out);
+                newsShown = news.getSequence();
+                command = readCommand();
+                processCommand(command);
             }
         }
     }
 
+    /**
+     * Prints the latest news if the game ended before a status block could show it.
+     */
+    private void printUnseenNews(long newsShown) {
+        if (news.getSequence() > newsShown) {
+            out.println(news.getLatestNews());
+        }
+    }
+
     /**
      * Takes the choice received from the menu and calls the appropriate method to carry out the instructions.
      * @param choice The action to process.
      */
-    private void processChoice(String choice) {
-        if (choice.equals("b") || choice.equals("s")) {
-            currentTown.enterShop(choice);
-        } else if (choice.equals("e")) {
-            System.out.println(currentTown.getTerrain().infoString());
-        } else if (choice.equals("m")) {
-            if (currentTown.leaveTown()) {
-                // This town is going away so print its news ahead of time.
-                System.out.println(currentTown.getLatestNews());
-                enterTown();
-                searched = false;
-            }
-        } else if (choice.equals("l")) {
-            currentTown.lookForTrouble();
-        } else if (choice.equals("d")) {
-            currentTown.digGold();
-        } else if (choice.equals("h")) {
-            if (searched) {
-                System.out.println("You have already searched this town!");
-            } else {
-                searchForTreasure();
-                searched = true;
-            }
-        } else if (choice.equals("x")) {
-            System.out.println("Fare thee well, " + hunter.getHunterName() + "!");
+    void processChoice(String choice) {
+        if (choice.length() == 1) {
+            processCommand(choice.charAt(0));
         } else {
-            System.out.println("Yikes! That's an invalid option! Try again.");
+            processCommand(NO_COMMAND);
         }
     }
 
-    public boolean isThreeTreasures() {
-        int count = 0;
-        for (String itm: treasureFound) {
-            if (itm != null) {
-                count++;
-            }
+    /**
+     * Looks up the command's handler in the command table and runs it, timing it if metrics are kept.
+     * The time the command spends waiting for the player, such as at the shop's prompts, is left out.
+     *
+     * @param command The command letter.
+     */
+    void processCommand(char command) {
+        turns++;
+        long start = startTimer();
+        runCommand(command);
+        stopTimer(GameMetrics.timerFor(command), start);
+        checkEnded();
+    }
+
+    private void runCommand(char command) {
+        CommandHandler handler = null;
+        if (command < commands.length) {
+            handler = commands[command];
         }
-        if (count == 3) {
-            return true;
+        if (handler == null) {
+            out.println("Yikes! That's an invalid option! Try again.");
         } else {
-            return false;
+            handler.run(this, command);
         }
     }
-    public boolean gameWon() {
-        if (isThreeTreasures()) {
-            return true;
+
+    private void shop(char command) {
+        long start = startTimer();
+        if (command == 'b') {
+            currentTown.enterShop("b");
+        } else {
+            currentTown.enterShop("s");
+        }
+        stopTimer(GameMetrics.SHOP_ENTER, start);
+    }
+
+    private void explore() {
+        out.println(currentTown.getTerrain().infoString());
+    }
+
+    private void move() {
+        long start = startTimer();
+        boolean left = currentTown.leaveTown();
+        stopTimer(GameMetrics.LEAVE_TOWN, start);
+        if (left) {
+            // This town is going away so print its news ahead of time.
+            out.println(currentTown.getLatestNews());
+            travel();
+            searched = false;
+        }
+    }
+
+    private void lookForTrouble() {
+        long start = startTimer();
+        currentTown.lookForTrouble();
+        stopTimer(GameMetrics.LOOK_FOR_TROUBLE, start);
+    }
+
+    private void dig() {
+        long start = startTimer();
+        currentTown.digGold();
+        stopTimer(GameMetrics.DIG_GOLD, start);
+    }
+
+    private void hunt() {
+        if (searched) {
+            out.println("You have already searched this town!");
+            listener.searched(GameListener.SEARCH_ALREADY_SEARCHED, treasure);
+        } else {
+            searchForTreasure();
+            searched = true;
+        }
+    }
+
+    private void quit() {
+        out.println("Fare thee well, " + hunter.getHunterName() + "!");
+    }
+
+    /**
+     * Buys or sells an item without prompting; used when the game is driven by a policy instead of the console.
+     *
+     * @param choice "b" to buy or "s" to sell.
+     * @param item The item to trade.
+     */
+    void trade(String choice, String item) {
+        turns++;
+        if (metrics == null) {
+            currentTown.enterShop(choice, item);
+        } else {
+            long start = System.nanoTime();
+            currentTown.enterShop(choice, item);
+            long nanos = System.nanoTime() - start;
+            metrics.record(GameMetrics.SHOP_ENTER, nanos);
+            metrics.record(GameMetrics.timerFor(choice), nanos);
         }
-        return false;
+        checkEnded();
+    }
+
+    /**
+     * Tells the listeners the first time the game is won or lost.
+     */
+    private void checkEnded() {
+        if (!ended && hunter != null && (gameWon() || hunter.gameOver())) {
+            ended = true;
+            listener.gameEnded(this, gameWon());
+        }
+    }
+
+    /**
+     * @return The current time for timing an action, or 0 if no metrics are being kept. The clock stops while
+     *         the game waits for the player's input or flushes its output to them, so timers measure the game's
+     *         own work rather than the player's think time or the network.
+     */
+    private long startTimer() {
+        if (metrics == null) {
+            return 0;
+        }
+        return System.nanoTime() - inputNanos;
+    }
+
+    private void stopTimer(int timer, long start) {
+        if (metrics != null) {
+            metrics.record(timer, System.nanoTime() - inputNanos - start);
+        }
+    }
+
+    /**
+     * @return true once the hunter has found as many different treasures as it takes to win.
+     */
+    public boolean gameWon() {
+        return treasureCount >= TreasureCatalog.treasuresToWin();
     }
 }
\ No newline at end of file
@@ -1,6 +1,327 @@
+import java.io.BufferedOutputStream;
+import java.io.Console;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
 public class TreasureHunterRunner {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("simulate")) {
+            long games = 100000;
+            if (args.length > 1 && !args[1].startsWith("--")) {
+                games = Long.parseLong(args[1]);
+            }
+            long seed = System.nanoTime();
+            if (args.length > 2 && !args[2].startsWith("--")) {
+                seed = Long.parseLong(args[2]);
+            }
+            System.out.println("seed " + seed);
+            if (hasFlag(args, "--batch")) {
+                // batched games have no listeners, so --metrics and --leaderboard don't apply
+                new BatchSimulation(seed).report(games, System.out);
+                return;
+            }
+            Simulation simulation = new Simulation(new GreedyPolicy(), seed);
+            GameMetrics metrics = null;
+            if (hasFlag(args, "--metrics")) {
+                metrics = new GameMetrics();
+                simulation.setMetrics(metrics);
+            }
+            Leaderboard leaderboard = openLeaderboard(args);
+            simulation.setLeaderboard(leaderboard);
+            simulation.report(games, System.out);
+            if (metrics != null) {
+                System.out.print(metrics.toText());
+            }
+            if (leaderboard != null) {
+                leaderboard.close();
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("server")) {
+            int port = 7777;
+            if (args.length > 1 && !args[1].startsWith("--")) {
+                port = Integer.parseInt(args[1]);
+            }
+            GameServer server = new GameServer(port);
+            GameMetrics metrics = new GameMetrics();
+            server.setMetrics(metrics);
+            metrics.startReporting(60, TimeUnit.SECONDS, System.err, hasFlag(args, "--metrics-json"));
+            server.setLeaderboard(openLeaderboard(args));
+            server.setSharedWorld(openSharedWorld(args));
+            server.setMarketPrices(startMarketPrices(args));
+            System.out.println("Treasure Hunter server listening on port " + server.getPort());
+            server.serve();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("api")) {
+            int port = 8080;
+            if (args.length > 1 && !args[1].startsWith("--")) {
+                port = Integer.parseInt(args[1]);
+            }
+            GameApiServer server = new GameApiServer(port);
+            GameMetrics metrics = new GameMetrics();
+            server.setMetrics(metrics);
+            metrics.startReporting(60, TimeUnit.SECONDS, System.err, hasFlag(args, "--metrics-json"));
+            server.setLeaderboard(openLeaderboard(args));
+            server.setSharedWorld(openSharedWorld(args));
+            server.setMarketPrices(startMarketPrices(args));
+            if (flagValue(args, "--park-sessions") != null) {
+                long parkAfter = 60;
+                if (flagValue(args, "--park-after") != null) {
+                    parkAfter = Long.parseLong(flagValue(args, "--park-after"));
+                }
+                SessionStore store = new SessionStore(Integer.parseInt(flagValue(args, "--park-sessions")),
+                        Files.createTempFile("treasurehunter-sessions", ".bin"));
+                server.setSessionStore(store, parkAfter, TimeUnit.SECONDS);
+            }
+            server.start();
+            System.out.println("Treasure Hunter API listening on http://127.0.0.1:" + server.getPort() + "/games");
+            return;
+        }
+        if (args.length > 1 && args[0].equals("leaderboard")) {
+            String difficulty = "n";
+            int k = 10;
+            if (args.length > 2) {
+                difficulty = args[2];
+            }
+            if (args.length > 3) {
+                k = Integer.parseInt(args[3]);
+            }
+            Leaderboard leaderboard = new Leaderboard(Path.of(args[1]));
+            long start = System.nanoTime();
+            List<LeaderboardEntry> top = leaderboard.top(difficulty, k);
+            double millis = (System.nanoTime() - start) / 1e6;
+            for (int i = 0; i < top.size(); i++) {
+                System.out.printf("%3d. %s%n", i + 1, top.get(i).infoString());
+            }
+            System.out.printf("top %d of %d results in %.2f ms%n", top.size(), leaderboard.size(), millis);
+            leaderboard.close();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("solve")) {
+            String[] difficulties = {"e", "n", "h", "s"};
+            int goldCap = PolicySolver.DEFAULT_GOLD_CAP;
+            if (args.length > 1 && !args[1].equals("all")) {
+                difficulties = new String[] {args[1]};
+            }
+            if (args.length > 2) {
+                goldCap = Integer.parseInt(args[2]);
+            }
+            for (String difficulty : difficulties) {
+                long start = System.nanoTime();
+                PolicySolver solver = new PolicySolver(difficulty, goldCap).solve();
+                System.out.printf("%s in %.2fs%n", solver.infoString(), (System.nanoTime() - start) / 1e9);
+                SimulationStats stats = new Simulation(solver, 0).run(difficulty, 100000);
+                System.out.printf("playing the solved policy: %.4f%% won over %d games%n", stats.getWinRate() * 100, stats.getGames());
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("sweep")) {
+            String difficulty = "n";
+            if (args.length > 1 && !args[1].startsWith("--")) {
+                difficulty = args[1];
+            }
+            BalanceSweep sweep = new BalanceSweep(new GreedyPolicy(), difficulty, 0);
+            if (flagValue(args, "--markdown") != null) {
+                sweep.setMarkdowns(doubles(flagValue(args, "--markdown")));
+            }
+            if (flagValue(args, "--toughness") != null) {
+                sweep.setToughnesses(doubles(flagValue(args, "--toughness")));
+            }
+            if (flagValue(args, "--gold") != null) {
+                double[] golds = doubles(flagValue(args, "--gold"));
+                int[] startingGolds = new int[golds.length];
+                for (int i = 0; i < golds.length; i++) {
+                    startingGolds[i] = (int) golds[i];
+                }
+                sweep.setStartingGolds(startingGolds);
+            }
+            if (flagValue(args, "--prices") != null) {
+                sweep.setPriceScales(doubles(flagValue(args, "--prices")));
+            }
+            double halfWidth = BalanceSweep.DEFAULT_HALF_WIDTH;
+            long maxGames = BalanceSweep.DEFAULT_MAX_GAMES;
+            if (flagValue(args, "--ci") != null) {
+                halfWidth = Double.parseDouble(flagValue(args, "--ci"));
+            }
+            if (flagValue(args, "--max-games") != null) {
+                maxGames = Long.parseLong(flagValue(args, "--max-games"));
+            }
+            sweep.setStopping(halfWidth, maxGames);
+            long start = System.nanoTime();
+            sweep.run();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("%d cells, %d games in %.1fs%n", sweep.getCellCount(), sweep.getTotalGames(), seconds);
+            String csv = flagValue(args, "--out");
+            if (csv != null) {
+                PrintStream file = new PrintStream(new FileOutputStream(csv), false, StandardCharsets.UTF_8);
+                sweep.writeCsv(file);
+                file.close();
+            }
+            sweep.writeHeatmap(System.out);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("script")) {
+            PrintStream results = System.out;
+            for (int i = 2; i + 1 < args.length; i++) {
+                if (args[i].equals("--out")) {
+                    results = new PrintStream(new BufferedOutputStream(new FileOutputStream(args[i + 1])), false, StandardCharsets.UTF_8);
+                }
+            }
+            new ScriptDriver().report(Path.of(args[1]), results, System.err);
+            if (results != System.out) {
+                results.close();
+            }
+            return;
+        }
+        if (args.length > 1 && args[0].equals("replay")) {
+            JournalReplayer replayer = new JournalReplayer(Path.of(args[1]));
+            TreasureHunter game = replayer.replay();
+            System.out.println("Replayed " + replayer.getRecordCount() + " records");
+            if (game != null && game.getCurrentTown() != null) {
+                System.out.println(game.getHunter().infoString());
+                System.out.println(game.getCurrentTown().infoString());
+            }
+            return;
+        }
         TreasureHunter game = new TreasureHunter();
-        game.play();
+        boolean noColor = !isTerminal() || System.getenv("NO_COLOR") != null;
+        GameJournal journal = null;
+        if (hasFlag(args, "--no-color")) {
+            noColor = true;
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--journal") && i + 1 < args.length) {
+                journal = new GameJournal(Path.of(args[i + 1]));
+                game.addListener(journal);
+            }
+        }
+        game.setPlainText(noColor);
+        Leaderboard leaderboard = openLeaderboard(args);
+        if (leaderboard != null) {
+            game.addListener(leaderboard);
+        }
+        try {
+            game.play();
+        } finally {
+            // the game can also end by running out of input, which throws out of play()
+            if (journal != null) {
+                journal.close();
+            }
+            if (leaderboard != null) {
+                leaderboard.close();
+            }
+        }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tells whether the game is talking to a person at a terminal, rather than to a pipe or a file.<p>
+     * From JDK 22 System.console() is there even when the output is redirected, and only Console.isTerminal()
+     * tells the two apart. The game is still built for JDK 21, which has no isTerminal() and no console at all
+     * unless both streams are a terminal, so the method is looked up when the game runs.
+     *
+     * @return true if the output is a terminal that shows ANSI colors.
+     */
+    private static boolean isTerminal() {
+        Console console = System.console();
+        if (console == null) {
+            return false;
+        }
+        try {
+            return (Boolean) Console.class.getMethod("isTerminal").invoke(console);
+        } catch (ReflectiveOperationException e) {
+            // before JDK 22 there is only a console when input and output are both a terminal
+            return true;
+        }
+    }
+
+    /**
+     * Opens the leaderboard named by --leaderboard. It is closed when the program exits, so results still
+     * buffered when a server is stopped are not lost.
+     *
+     * @return The leaderboard, or null if the flag isn't given.
+     */
+    private static Leaderboard openLeaderboard(String[] args) throws IOException {
+        String directory = flagValue(args, "--leaderboard");
+        if (directory == null) {
+            return null;
+        }
+        Leaderboard leaderboard = new Leaderboard(Path.of(directory));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                leaderboard.close();
+            } catch (IOException e) {
+                // the program is exiting anyway
+            }
+        }));
+        return leaderboard;
+    }
+
+    /**
+     * Makes the world named by --shared-world, whose shops each start with that many of every item.
+     *
+     * @return The world, or null if the flag isn't given.
+     */
+    private static SharedWorld openSharedWorld(String[] args) {
+        String stock = flagValue(args, "--shared-world");
+        if (stock == null) {
+            return null;
+        }
+        return new SharedWorld(new SplittableRandom().nextLong(), Integer.parseInt(stock));
+    }
+
+    /**
+     * Starts the market named by --market-prices, which publishes new prices every that many seconds.
+     *
+     * @return The market, or null if the flag isn't given.
+     */
+    private static MarketPrices startMarketPrices(String[] args) {
+        String seconds = flagValue(args, "--market-prices");
+        if (seconds == null) {
+            return null;
+        }
+        MarketPrices prices = new MarketPrices();
+        prices.startPublishing(Long.parseLong(seconds), TimeUnit.SECONDS);
+        return prices;
+    }
+
+    /**
+     * @return The argument after the flag, or null if the flag isn't given.
+     */
+    private static String flagValue(String[] args, String flag) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(flag)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The numbers in a comma separated list such as "0.25,0.5,1".
+     */
+    private static double[] doubles(String list) {
+        String[] parts = list.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+
+    private static boolean hasFlag(String[] args, String flag) {
+        for (String arg : args) {
+            if (arg.equals(flag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
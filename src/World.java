@@ -0,0 +1,185 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The World is the map of towns that a hunter travels between.<p>
+ * Towns are numbered 0 to size - 1 and joined by roads: each town is on a ring road to the towns either side
+ * of it, and a second road skips ahead and back by a distance picked from the world's seed.<p>
+ * A town is only built the first time the hunter visits it, from a random generator seeded by the world seed
+ * and the town's number, so the same town always has the same terrain, toughness and treasure.
+ * Built towns are kept in a least-recently-used cache; revisiting a cached town costs a map lookup,
+ * and a town that has dropped out of the cache is simply built again.<p>
+ * What the hunter changes in a town is not part of the cache: which towns have been dug is kept in a bitset
+ * indexed by town number, so a town rebuilt after dropping out of the cache is just as the hunter left it,
+ * and how a game plays out never depends on the size of the cache. A GameSnapshot shares the bitset rather than
+ * copying it; the World copies it the next time a town is dug, so taking a snapshot stays cheap.
+ */
+
+public class World {
+    // constants
+    public static final int DEFAULT_SIZE = 1000;
+    public static final int DEFAULT_CACHE_SIZE = 16;
+    public static final int NEIGHBORS = 4;
+    private static final long TOWN_SEED_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // instance variables
+    private long seed;
+    private int size;
+    private int jump;
+    private TreasureHunter game;
+    private LinkedHashMap<Integer, Town> towns;
+    private long[] dug;
+    private boolean dugShared;
+
+    /**
+     * @param seed The world seed; the same seed always gives the same map and towns.
+     * @param size How many towns there are.
+     * @param cacheSize How many built towns are kept in memory.
+     * @param game The game the towns belong to.
+     */
+    public World(long seed, int size, int cacheSize, TreasureHunter game) {
+        if (size < 3) {
+            throw new IllegalArgumentException("A world needs at least 3 towns");
+        }
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("The town cache must hold at least 1 town");
+        }
+        this.seed = seed;
+        this.size = size;
+        this.game = game;
+        jump = 2 + new SplittableRandom(seed).nextInt(Math.max(1, size / 2 - 1));
+        dug = new long[(size + 63) >>> 6];
+        towns = new LinkedHashMap<Integer, Town>(cacheSize * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Town> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return How many built towns are in the cache right now.
+     */
+    public int getCachedTownCount() {
+        return towns.size();
+    }
+
+    /**
+     * @param townId The town's number.
+     * @return true if the hunter has dug for gold in the town.
+     */
+    public boolean hasDug(int townId) {
+        return (dug[townId >>> 6] & (1L << townId)) != 0;
+    }
+
+    /**
+     * Records whether the hunter has dug for gold in a town, whether or not the town is in the cache.
+     *
+     * @param townId The town's number.
+     * @param dugGold true if the town has been dug.
+     */
+    void setDug(int townId, boolean dugGold) {
+        if (dugShared) {
+            dug = dug.clone();
+            dugShared = false;
+        }
+        if (dugGold) {
+            dug[townId >>> 6] |= 1L << townId;
+        } else {
+            dug[townId >>> 6] &= ~(1L << townId);
+        }
+    }
+
+    /**
+     * Shares the bitset of dug towns, such as with a snapshot; the World copies it before changing it again.
+     *
+     * @return The bitset, indexed by town number, which must not be changed.
+     */
+    long[] shareDugTowns() {
+        dugShared = true;
+        return dug;
+    }
+
+    /**
+     * Starts the World off with towns already dug, such as from a snapshot; call before any town is built.
+     *
+     * @param dugTowns A bitset from shareDugTowns() of a world the same size, which must not be changed.
+     */
+    void restoreDugTowns(long[] dugTowns) {
+        if (dugTowns.length != dug.length) {
+            throw new IllegalArgumentException("The dug towns are from a world of another size");
+        }
+        dug = dugTowns;
+        dugShared = true;
+    }
+
+    /**
+     * Finds the town at the end of one of the roads out of a town.
+     *
+     * @param townId The town the road starts from.
+     * @param road Which road, from 0 to NEIGHBORS - 1.
+     * @return The number of the town at the other end.
+     */
+    public int neighbor(int townId, int road) {
+        int step;
+        if (road == 0) {
+            step = 1;
+        } else if (road == 1) {
+            step = -1;
+        } else if (road == 2) {
+            step = jump;
+        } else {
+            step = -jump;
+        }
+        return Math.floorMod(townId + step, size);
+    }
+
+    /**
+     * Returns a town, building it if it isn't in the cache.
+     *
+     * @param townId The town's number.
+     * @return The town.
+     */
+    public Town townAt(int townId) {
+        Town town = towns.get(townId);
+        if (town == null) {
+            town = buildTown(townId);
+            towns.put(townId, town);
+        }
+        return town;
+    }
+
+    /**
+     * @param worldSeed The world's seed.
+     * @param townId The town's number.
+     * @return The seed the town's own random generator is made with; BatchSimulation rolls towns from it too.
+     */
+    static long townSeed(long worldSeed, int townId) {
+        return worldSeed + (townId + 1) * TOWN_SEED_GAMMA;
+    }
+
+    /**
+     * Builds a town from its own random generator.
+     */
+    private Town buildTown(int townId) {
+        SplittableRandom townRandom = new SplittableRandom(townSeed(seed, townId));
+        String treasure = TreasureCatalog.nameOf(townRandom.nextInt(TreasureCatalog.size()));
+        ShopStock stock = null;
+        if (game.getSharedWorld() != null) {
+            stock = game.getSharedWorld().stockAt(townId);
+        }
+        Shop shop = new Shop(game.getMarkdown(), game, stock);
+        Town town = new Town(shop, game.getToughness(), treasure, townRandom, game);
+        town.joinWorld(this, townId);
+        return town;
+    }
+}